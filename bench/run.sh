@@ -0,0 +1,17 @@
+#!/bin/sh
+# Compiles src/ and bench/, generates a synthetic data/ directory per size and runs the benchmarks that are not
+# in the JMH module (mvn -Pjmh package, see the README).
+# Usage: bench/run.sh [attendance rows ...]   (default: 1000 100000 10000000)
+# BENCH_JDBC_URL (e.g. jdbc:h2:./bench) and BENCH_CLASSPATH (the driver jar) add the database store comparison.
+# Background compaction is off so every run sees the generated log; the compaction benchmark uses a copy.
+set -e
+root=$(cd "$(dirname "$0")/.." && pwd)
+out=$(mktemp -d)
+javac -encoding UTF-8 -d "$out" "$root"/src/*.java "$root"/bench/ui/*.java
+[ $# -eq 0 ] && set -- 1000 100000 10000000
+for rows in "$@"; do
+    work="$root/bench/work/$rows"
+    [ -f "$work/data/attendance.txt" ] || java -cp "$out" ui.SyntheticData "$work" "$rows"
+    (cd "$work" && java -Djava.awt.headless=true -Dattendance.compact.bytes=0 ${BENCH_JDBC_URL:+-Dbench.jdbc.url="$BENCH_JDBC_URL"} \
+        -cp "$out${BENCH_CLASSPATH:+:$BENCH_CLASSPATH}" ui.Benchmarks "$rows")
+done
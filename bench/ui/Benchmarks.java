@@ -0,0 +1,137 @@
+package ui;
+
+import java.io.Writer;
+import java.nio.file.*;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+// Times the paths the JMH benchmarks in jmh/ do not cover (report, class totals, ingestion, compaction,
+// history and the store comparison) against the data/ directory in the working directory (see bench/run.sh).
+// Each benchmark is warmed up, then run repeatedly for a fixed time; -Dbench.seconds changes the budget.
+// -Dbench.jdbc.url (driver on the classpath) also imports the log into that database and compares the stores.
+public final class Benchmarks {
+    private static final double SECONDS = Double.parseDouble(System.getProperty("bench.seconds", "3"));
+
+    private interface Op {
+        Object run(int iteration) throws Exception;
+    }
+
+    private static Object sink;
+
+    public static void main(String[] args) throws Exception {
+        long rows = args.length > 0 ? Long.parseLong(args[0]) : -1;
+        int students = rows > 0 ? SyntheticData.studentCount(rows) : 100;
+        Path log = Paths.get("data/attendance.txt");
+        String[] courses = {"A", "B", "C", "D", "E", "F"};
+        System.out.println("== " + (rows > 0 ? rows + " attendance rows, " : "") + students + " students");
+
+        run("attendance report to CSV, " + ForkJoinPool.commonPool().getParallelism() + " workers",
+                i -> AttendanceReport.write(log, Writer.nullWriter(), ForkJoinPool.commonPool()));
+
+        LocalDate today = LocalDate.now();
+        String[] names = {"OOP", "Physics", "Elec", "DSML", "Math", "Ecology"};
+        run("class totals, semester to today", i -> SessionCalendar.current().count(names[i % names.length], today));
+
+        List<String> roster = new ArrayList<>();
+        for (int s = 0; s < students; s += 6) {
+            roster.add("stu" + s);
+        }
+        Set<String> present = new HashSet<>(roster.subList(0, roster.size() / 2));
+
+        // Ingestion appends to the log, so each run writes to an empty scratch log with its own key index
+        Path rollCalls = Paths.get("rollcalls");
+        if (Files.isDirectory(rollCalls)) {
+            int cores = Runtime.getRuntime().availableProcessors();
+            for (int threads : new TreeSet<>(Arrays.asList(1, cores))) {
+                Path scratch = Files.createTempDirectory("ingest");
+                Path scratchLog = scratch.resolve("attendance.txt");
+                AttendanceWriter writer = AttendanceWriter.open(scratchLog, AttendanceDedupIndex.open(scratchLog, scratch.resolve("keys")));
+                RollCallIngestor ingestor = new RollCallIngestor(writer, threads);
+                System.out.printf("%-45s %s%n", "roll-call ingest, " + threads + " threads", ingestor.ingest(rollCalls));
+            }
+        }
+
+        // Compaction moves the log into segments, so it runs on a scratch copy
+        Path compactDir = Files.createTempDirectory("compact");
+        Path compactLog = compactDir.resolve("attendance.txt");
+        Files.copy(log, compactLog);
+        System.out.printf("%-45s %s%n", "log compaction", new AttendanceCompactor(compactLog).prepare().swap());
+        AttendanceSegments segments = AttendanceSegments.of(compactLog);
+        run("segment counters checkpoint, recount", i -> AttendanceCounters.count(segments, ForkJoinPool.commonPool()));
+        int[] lastDay = {AttendanceColumns.NO_DAY};
+        AttendanceCounters.of(compactLog, segments, ForkJoinPool.commonPool()).forEach((student, course, attended, missed, day) ->
+                lastDay[0] = Math.max(lastDay[0], day));
+        run("course history, last 30 days from segments", i -> {
+            int[] found = {0};
+            segments.scan(courses[i % 6], lastDay[0] - 29, lastDay[0], record -> found[0]++);
+            return found[0];
+        });
+        LocalDate weekEnd = LocalDate.ofEpochDay(lastDay[0]);
+        LocalDate weekStart = weekEnd.minusDays(6);
+        run("course history, one week", i -> AttendanceStore.shared().courseHistory(courses[i % 6], weekStart, weekEnd).size());
+        run("student history, one week", i -> AttendanceStore.shared().studentHistory("stu" + (i % students), weekStart, weekEnd).size());
+
+        String jdbcUrl = System.getProperty("bench.jdbc.url");
+        if (jdbcUrl != null) {
+            JdbcAttendanceStore jdbc = JdbcAttendanceStore.open(jdbcUrl);
+            long start = System.nanoTime();
+            int imported = jdbc.importLog(log);
+            System.out.printf("%-45s %d new rows in %.1f ms%n", "jdbc import", imported, (System.nanoTime() - start) / 1e6);
+
+            Map<String, AttendanceStore> stores = new LinkedHashMap<>();
+            stores.put("text", TextAttendanceStore.shared());
+            stores.put("jdbc", jdbc);
+            for (Map.Entry<String, AttendanceStore> entry : stores.entrySet()) {
+                AttendanceStore store = entry.getValue();
+                run(entry.getKey() + " store lookup, one student x 3 courses", i -> {
+                    String student = "stu" + (i % students);
+                    int total = 0;
+                    for (int c = 0; c < 3; c++) {
+                        total += store.counts(student, courses[(i + 2 * c) % 6]).getRecorded();
+                    }
+                    return total;
+                });
+            }
+
+            // Every iteration records a new day, so each submit writes the whole roster; the text
+            // store's writer gets a scratch log to keep data/ at its generated size
+            Path scratch = Files.createTempDirectory("submit");
+            Path scratchLog = scratch.resolve("attendance.txt");
+            AttendanceWriter writer = AttendanceWriter.open(scratchLog, AttendanceDedupIndex.open(scratchLog, scratch.resolve("keys")));
+            LocalDate from = today.plusYears(1);
+            run("text store submit, " + roster.size() + " students", i -> writer.append(submission(roster, present, from, i)).get());
+            run("jdbc store submit, " + roster.size() + " students", i -> jdbc.append(submission(roster, present, from, i)));
+            jdbc.close();
+        }
+    }
+
+    private static List<AttendanceRecord> submission(List<String> roster, Set<String> present, LocalDate from, int day) {
+        String date = from.plusDays(day).toString();
+        List<AttendanceRecord> records = new ArrayList<>();
+        for (String student : roster) {
+            records.add(new AttendanceRecord(student, date, "B", present.contains(student)));
+        }
+        return records;
+    }
+
+    private static void run(String name, Op op) throws Exception {
+        long warmupEnd = System.nanoTime() + (long) (SECONDS * 0.3e9);
+        int i = 0;
+        while (System.nanoTime() < warmupEnd) {
+            sink = op.run(i++);
+        }
+
+        long start = System.nanoTime();
+        long end = start + (long) (SECONDS * 1e9);
+        int ops = 0;
+        long now;
+        do {
+            sink = op.run(i++);
+            ops++;
+            now = System.nanoTime();
+        } while (now < end || ops < 3);
+        double millisPerOp = (now - start) / 1e6 / ops;
+        System.out.printf("%-45s %12.4f ms/op %10d ops%n", name, millisPerOp, ops);
+    }
+}
@@ -0,0 +1,97 @@
+package ui;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.LocalDate;
+import java.util.*;
+
+// Writes a data/ directory of the given attendance size for the benchmarks, plus a rollcalls/
+// directory of card-reader exports (one file per course) for the ingestion benchmark.
+// Usage: SyntheticData <root> <attendance rows>
+public final class SyntheticData {
+    private static final String[] COURSES = {"A", "B", "C", "D", "E", "F"};
+    private static final String[] TIMETABLE = {
+            "MON,09:00,OOP,Room 101", "MON,10:00,Physics,Room 102", "MON,11:00,Elec,Room 103", "MON,12:00,DSML,Room 104",
+            "TUE,09:00,OOP,Room 101", "TUE,10:00,Math,Room 102", "TUE,11:00,Ecology,Room 103",
+            "WED,09:00,OOP,Room 101", "WED,10:00,Physics,Room 102", "WED,11:00,Elec,Room 103", "WED,12:00,DSML,Room 104",
+            "THU,10:00,Math,Room 102", "THU,11:00,Ecology,Room 103",
+            "FRI,09:00,OOP,Room 101", "FRI,10:00,Physics,Room 102", "FRI,11:00,DSML,Room 104"};
+
+    private SyntheticData() {
+    }
+
+    public static int studentCount(long rows) {
+        return (int) Math.max(100, Math.min(50_000, rows / 200));
+    }
+
+    public static void generate(Path root, long rows) throws IOException {
+        Path data = root.resolve("data");
+        Files.createDirectories(data);
+        int students = studentCount(rows);
+        Random random = new Random(42);
+
+        try (BufferedWriter writer = Files.newBufferedWriter(data.resolve("students.txt"), StandardCharsets.UTF_8)) {
+            for (int i = 0; i < students; i++) {
+                writer.write("stu" + i + ",pass" + i + "," + COURSES[i % 6] + ";" + COURSES[(i + 2) % 6] + ";" + COURSES[(i + 4) % 6]);
+                writer.newLine();
+            }
+        }
+        try (BufferedWriter writer = Files.newBufferedWriter(data.resolve("professors.txt"), StandardCharsets.UTF_8)) {
+            for (String course : COURSES) {
+                writer.write("prof" + course + ",pass" + course + "," + course);
+                writer.newLine();
+            }
+        }
+        Files.write(data.resolve("admin.txt"), Collections.singletonList("admin1,admin123"), StandardCharsets.UTF_8);
+        Files.write(data.resolve("timetable.txt"), Arrays.asList(TIMETABLE), StandardCharsets.UTF_8);
+        Files.write(data.resolve("holidays.txt"), Arrays.asList("New Year,2024-01-01", "Republic Day,2024-01-26",
+                "New Year,2025-01-01", "Republic Day,2025-01-26"), StandardCharsets.UTF_8);
+        List<String> totals = new ArrayList<>();
+        for (String course : COURSES) {
+            totals.add(course + ",36");
+        }
+        Files.write(data.resolve("class_totals.txt"), totals, StandardCharsets.UTF_8);
+
+        LocalDate start = LocalDate.of(2024, 1, 1);
+        try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(
+                Files.newOutputStream(data.resolve("attendance.txt")), StandardCharsets.UTF_8), 1 << 20)) {
+            for (long row = 0; row < rows; row++) {
+                int student = random.nextInt(students);
+                String course = COURSES[(student + 2 * random.nextInt(3)) % 6];
+                LocalDate date = start.plusDays(row * 600 / Math.max(1, rows));
+                writer.write("stu" + student + "|" + date + "|" + course + "|" + (random.nextInt(4) == 0 ? 0 : 1));
+                writer.newLine();
+            }
+        }
+
+        generateRollCalls(root.resolve("rollcalls"), students, Math.min(rows, 2_000_000), random);
+    }
+
+    // Roll calls for the days after the attendance history, so most rows are new to the log
+    private static void generateRollCalls(Path dir, int students, long rows, Random random) throws IOException {
+        Files.createDirectories(dir);
+        LocalDate start = LocalDate.of(2025, 9, 1);
+        for (int c = 0; c < COURSES.length; c++) {
+            try (BufferedWriter writer = Files.newBufferedWriter(dir.resolve("course_" + COURSES[c] + ".csv"), StandardCharsets.UTF_8)) {
+                writer.write("student,date,course,status");
+                writer.newLine();
+                for (long row = 0; row < rows / COURSES.length; row++) {
+                    // Students of the same parity as the course are enrolled in it
+                    int student = random.nextInt(students / 2) * 2 + c % 2;
+                    LocalDate date = start.plusDays(random.nextInt(90));
+                    writer.write("stu" + student + "," + date + "," + COURSES[c] + "," + (random.nextInt(4) == 0 ? "A" : "P"));
+                    writer.newLine();
+                }
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: SyntheticData <root> <attendance rows>");
+            System.exit(1);
+        }
+        generate(Paths.get(args[0]), Long.parseLong(args[1]));
+    }
+}
@@ -0,0 +1,41 @@
+package ui;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// The StudentDashboard attendance card: building the attendance index over the whole log, and one student's
+// attended, missed and total classes per enrolled course from it
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Djava.awt.headless=true", "-Dattendance.compact.bytes=0"})
+public class AttendanceBenchmark {
+    @Param({"1000", "100000", "10000000"})
+    public long rows;
+
+    private final Path log = Paths.get("data/attendance.txt");
+    private int students;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        students = BenchData.use(rows);
+        AttendanceSummary.shared().rows("stu0");
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public AttendanceIndex buildIndex() throws IOException {
+        return AttendanceIndex.build(log);
+    }
+
+    @Benchmark
+    public List<AttendanceSummary.Row> studentRows() throws IOException {
+        return AttendanceSummary.shared().rows("stu" + (next++ % students));
+    }
+}
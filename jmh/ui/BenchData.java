@@ -0,0 +1,26 @@
+package ui;
+
+import java.io.IOException;
+import java.nio.file.*;
+
+// The synthetic data/ directory a benchmark reads. The application opens data/ relative to the working
+// directory, so the benchmarks run from bench/work, where data is a link to <rows>/data, generated by
+// SyntheticData on first use and shared with bench/run.sh.
+final class BenchData {
+    private BenchData() {
+    }
+
+    // Points data at the directory of that size and returns its number of students
+    static int use(long rows) throws IOException {
+        Path root = Paths.get(Long.toString(rows)).toAbsolutePath();
+        if (!Files.exists(root.resolve("data/attendance.txt"))) SyntheticData.generate(root, rows);
+
+        Path data = Paths.get("data");
+        if (Files.exists(data, LinkOption.NOFOLLOW_LINKS) && !Files.isSymbolicLink(data)) {
+            throw new IOException(data.toAbsolutePath() + " is a real data directory; run the benchmarks from bench/work");
+        }
+        Files.deleteIfExists(data);
+        Files.createSymbolicLink(data, root.resolve("data"));
+        return SyntheticData.studentCount(rows);
+    }
+}
@@ -0,0 +1,37 @@
+package ui;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// LoginPage.validateLogin: the credential lookup behind it, for a right and a wrong password
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Djava.awt.headless=true", "-Dattendance.compact.bytes=0"})
+public class LoginBenchmark {
+    @Param({"1000", "100000", "10000000"})
+    public long rows;
+
+    private int students;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        students = BenchData.use(rows);
+        CredentialRegistry.shared();
+    }
+
+    @Benchmark
+    public boolean validate() {
+        int student = next++ % students;
+        return CredentialRegistry.shared().validate("Student", "stu" + student, "pass" + student);
+    }
+
+    @Benchmark
+    public boolean validateWrongPassword() {
+        return CredentialRegistry.shared().validate("Student", "stu" + (next++ % students), "wrong");
+    }
+}
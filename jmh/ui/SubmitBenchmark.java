@@ -0,0 +1,39 @@
+package ui;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// The ProfessorDashboard submit path for one course's roster. After the first call every row repeats
+// today's mark, so this times the last-write-wins check a resubmission goes through, not the log growing.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Djava.awt.headless=true", "-Dattendance.compact.bytes=0"})
+public class SubmitBenchmark {
+    @Param({"1000", "100000", "10000000"})
+    public long rows;
+
+    private final List<String> roster = new ArrayList<>();
+    private Set<String> present;
+    private String date;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        int students = BenchData.use(rows);
+        for (int s = 0; s < students; s += 6) {
+            roster.add("stu" + s);
+        }
+        present = new HashSet<>(roster.subList(0, roster.size() / 2));
+        date = LocalDate.now().toString();
+    }
+
+    @Benchmark
+    public int submit() throws IOException {
+        return ProfessorDashboard.saveAttendance(roster, "A", date, present);
+    }
+}
@@ -0,0 +1,30 @@
+package ui;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// TimetablePanel's data: parsing timetable.txt, as a reload after the file changes does
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Djava.awt.headless=true", "-Dattendance.compact.bytes=0"})
+public class TimetableBenchmark {
+    @Param({"1000", "100000", "10000000"})
+    public long rows;
+
+    private final Path file = Paths.get("data/timetable.txt");
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        BenchData.use(rows);
+    }
+
+    @Benchmark
+    public Timetable parse() throws IOException {
+        return Timetable.load(file);
+    }
+}
@@ -10,6 +10,7 @@ import javax.swing.*;
 
 public class AdminDashboard extends JFrame {
     private JTextArea holidayArea;
+    private JTextArea alertArea;
     private JTextField usernameField, passwordField, courseField;
     private JComboBox<String> roleCombo;
     private JComboBox<String> workingDayCombo, workingAsCombo;
@@ -19,6 +20,9 @@ public class AdminDashboard extends JFrame {
     private final File weekendFile = new File("data/weekend_overrides.txt");
     private final File studentFile = new File("data/students.txt");
     private final File professorFile = new File("data/professors.txt");
+    private final BackgroundLoader loader = new BackgroundLoader();
+    private DataWatcher.Subscription holidaySubscription;
+    private DataWatcher.Subscription alertSubscription;
 
     public AdminDashboard() {
         setTitle("Admin Dashboard");
@@ -28,9 +32,20 @@ public class AdminDashboard extends JFrame {
         setLayout(new BorderLayout());
 
         initUI();
+        holidaySubscription = DataWatcher.shared().subscribe(this::loadHolidayData, "holidays.txt");
+        alertSubscription = DataWatcher.shared().subscribe(this::loadAlerts, "alerts.txt");
+        DataWatcher.shared().maintainAttendance();
         setVisible(true);
     }
 
+    @Override
+    public void dispose() {
+        holidaySubscription.cancel();
+        alertSubscription.cancel();
+        loader.cancelAll();
+        super.dispose();
+    }
+
     private void initUI() {
         JPanel sidebar = new JPanel();
         sidebar.setLayout(new GridLayout(4, 1, 10, 10));
@@ -39,9 +54,10 @@ public class AdminDashboard extends JFrame {
 
         JButton createUserBtn = new JButton("Create User");
         JButton manageHolidayBtn = new JButton("Manage Holidays");
+        JButton alertsBtn = new JButton("Attendance Alerts");
         JButton logoutBtn = new JButton("Logout");
 
-        for (JButton btn : new JButton[]{createUserBtn, manageHolidayBtn}) {
+        for (JButton btn : new JButton[]{createUserBtn, manageHolidayBtn, alertsBtn}) {
             btn.setBackground(Color.WHITE);
             btn.setForeground(Color.BLACK);
             sidebar.add(btn);
@@ -54,15 +70,28 @@ public class AdminDashboard extends JFrame {
         JPanel contentPanel = new JPanel(new CardLayout());
         JPanel createUserPanel = createUserPanel();
         JPanel holidayPanel = createHolidayPanel();
+        alertArea = new JTextArea();
+        alertArea.setEditable(false);
+        alertArea.setFont(new Font("Monospaced", Font.PLAIN, 13));
 
         contentPanel.add(createUserPanel, "CreateUser");
         contentPanel.add(holidayPanel, "Holiday");
+        contentPanel.add(new JScrollPane(alertArea), "Alerts");
 
-        createUserBtn.addActionListener(e -> ((CardLayout) contentPanel.getLayout()).show(contentPanel, "CreateUser"));
+        createUserBtn.addActionListener(e -> {
+            loader.showing("CreateUser");
+            ((CardLayout) contentPanel.getLayout()).show(contentPanel, "CreateUser");
+        });
         manageHolidayBtn.addActionListener(e -> {
+            loader.showing("Holiday");
             loadHolidayData();
             ((CardLayout) contentPanel.getLayout()).show(contentPanel, "Holiday");
         });
+        alertsBtn.addActionListener(e -> {
+            loader.showing("Alerts");
+            loadAlerts();
+            ((CardLayout) contentPanel.getLayout()).show(contentPanel, "Alerts");
+        });
 
         logoutBtn.addActionListener(e -> {
             dispose();
@@ -73,21 +102,6 @@ public class AdminDashboard extends JFrame {
         add(contentPanel, BorderLayout.CENTER);
     }
 
-    private boolean isCourseAlreadyAssigned(String courseCode) {
-        try (BufferedReader reader = new BufferedReader(new FileReader(professorFile))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split(",");
-                if (parts.length >= 3 && parts[2].trim().equalsIgnoreCase(courseCode.trim())) {
-                    return true;
-                }
-            }
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-        return false;
-    }
-
     private JPanel createUserPanel() {
     JPanel panel = new JPanel(new GridBagLayout());
     panel.setBackground(Color.WHITE);
@@ -151,6 +165,16 @@ public class AdminDashboard extends JFrame {
     createBtn.addActionListener(this::createUser);
     panel.add(createBtn, gbc);
 
+    gbc.gridy++;
+    // Bulk import from CSV
+    JButton importBtn = new JButton("Import CSV...");
+    importBtn.setFont(new Font("Arial", Font.BOLD, 14));
+    importBtn.setPreferredSize(new Dimension(200, 34));
+    importBtn.setFocusPainted(false);
+    importBtn.setToolTipText("One user per line: role,username,password,courses");
+    importBtn.addActionListener(this::importUsers);
+    panel.add(importBtn, gbc);
+
     return panel;
 }
 
@@ -164,50 +188,6 @@ private int countLines(File file) {
     return count;
 }
 
-private boolean isUserWithSameNameAndCourses(String username, String courseInput) {
-    try (BufferedReader reader = new BufferedReader(new FileReader(studentFile))) {
-        String line;
-        while ((line = reader.readLine()) != null) {
-            String[] parts = line.split(",");
-            if (parts.length >= 3) {
-                String existingUsername = parts[0].trim();
-                String[] existingCourses = parts[2].split(";");
-                String[] newCourses = courseInput.split(";");
-
-                // Sort both arrays to compare regardless of order
-                Arrays.sort(existingCourses);
-                Arrays.sort(newCourses);
-
-                if (existingUsername.equalsIgnoreCase(username.trim()) &&
-                    Arrays.equals(existingCourses, newCourses)) {
-                    return true;
-                }
-            }
-        }
-    } catch (IOException e) {
-        e.printStackTrace();
-    }
-    return false;
-}
-
-private boolean isUserExists(String username, String role) {
-    username = username.toLowerCase().trim();
-    File fileToCheck = role.equals("Student") ? studentFile : professorFile;
-
-    try (BufferedReader br = new BufferedReader(new FileReader(fileToCheck))) {
-        String line;
-        while ((line = br.readLine()) != null) {
-            String[] parts = line.split(",");
-            if (parts.length >= 1 && parts[0].trim().equalsIgnoreCase(username)) {
-                return true;
-            }
-        }
-    } catch (IOException e) {
-        e.printStackTrace();
-    }
-    return false;
-}
-
 private boolean isUserInFile(String username, File file) {
     try (BufferedReader br = new BufferedReader(new FileReader(file))) {
         String line;
@@ -245,72 +225,72 @@ private boolean isUserInFile(String username, File file) {
             return;
         }
 
-       if (isUserExists(username, role)) {
-    JOptionPane.showMessageDialog(this, "Username already exists in the " + role + " records.");
-    return;
-}
-
-if (isUserWithSameNameAndCourses(username, courseInput)) {
-    JOptionPane.showMessageDialog(this,
-        "A user with the same username and course codes already exists.",
-        "Duplicate User",
-        JOptionPane.ERROR_MESSAGE);
-    return;
-}
-
-        if (role.equals("Professor")) {
-    String[] courses = courseInput.split(";");
-    if (courses.length != 1) {
-        JOptionPane.showMessageDialog(this,
-            "Professors can only be assigned to ONE course.",
-            "Error",
-            JOptionPane.ERROR_MESSAGE);
-        return;
-    }
-
-    String courseCode = courses[0].trim();
-    if (isCourseAlreadyAssigned(courseCode)) {
-        JOptionPane.showMessageDialog(this,
-                "Course code '" + courseCode + "' is already assigned to a professor.",
+        if (role.equals("Professor") && courseInput.split(";").length != 1) {
+            JOptionPane.showMessageDialog(this,
+                "Professors can only be assigned to ONE course.",
                 "Error",
                 JOptionPane.ERROR_MESSAGE);
-        return;
-    }
-}
+            return;
+        }
 
-        if (role.equals("Professor")) {
-            String courseCode = courseInput.trim();
-            if (isCourseAlreadyAssigned(courseCode)) {
-                JOptionPane.showMessageDialog(this,
-                        "Course code '" + courseCode + "' is already assigned to a professor.",
-                        "Error",
-                        JOptionPane.ERROR_MESSAGE);
+        JButton createBtn = (JButton) e.getSource();
+        createBtn.setEnabled(false);
+        loader.run(() -> saveUser(username, password, role, courseInput), error -> {
+            createBtn.setEnabled(true);
+            if (error != null) {
+                JOptionPane.showMessageDialog(this, error, "Error", JOptionPane.ERROR_MESSAGE);
                 return;
             }
-        }
-
-        try (BufferedWriter bw = new BufferedWriter(new FileWriter(userFile, true))) {
-            bw.write(role + "," + username + "," + password);
-            bw.newLine();
-        } catch (IOException ex) {
+            JOptionPane.showMessageDialog(this, "User created successfully.");
+            usernameField.setText("");
+            passwordField.setText("");
+            courseField.setText("");
+        }, ex -> {
             ex.printStackTrace();
-            JOptionPane.showMessageDialog(this, "Error writing to users.txt");
-            return;
-        }
+            createBtn.setEnabled(true);
+        });
+    }
 
-        try (BufferedWriter bw = new BufferedWriter(new FileWriter(role.equals("Student") ? studentFile : professorFile, true))) {
-            bw.write(username + "," + password + "," + courseInput);
-            bw.newLine();
+    // Runs off the EDT; returns an error message, or null once the user has been written
+    private String saveUser(String username, String password, String role, String courseInput) {
+        try {
+            UserImporter importer = new UserImporter(userFile, studentFile, professorFile);
+            String error = importer.add(role, username, password, courseInput);
+            if (error != null) return error;
+            importer.write();
         } catch (IOException ex) {
             ex.printStackTrace();
-            JOptionPane.showMessageDialog(this, "Error writing to " + (role.equals("Student") ? "students.txt" : "professors.txt"));
-            return;
+            return "Error writing user records.";
         }
+        return null;
+    }
 
-        JOptionPane.showMessageDialog(this, "User created successfully.");
-        usernameField.setText("");
-        passwordField.setText("");
-        courseField.setText("");
+    private void importUsers(ActionEvent e) {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setDialogTitle("Import users (role,username,password,courses)");
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) return;
+        File csv = chooser.getSelectedFile();
+
+        JButton importBtn = (JButton) e.getSource();
+        importBtn.setEnabled(false);
+        loader.run(() -> UserImporter.importCsv(csv.toPath(), userFile, studentFile, professorFile), result -> {
+            importBtn.setEnabled(true);
+            StringBuilder report = new StringBuilder("Imported " + result.getImported() + " user(s).");
+            if (!result.getErrors().isEmpty()) {
+                report.append("\n").append(result.getErrors().size()).append(" row(s) rejected:\n");
+                for (String error : result.getErrors()) {
+                    report.append(error).append("\n");
+                }
+            }
+            JTextArea area = new JTextArea(report.toString(), 15, 60);
+            area.setEditable(false);
+            JOptionPane.showMessageDialog(this, new JScrollPane(area), "Import Users",
+                    result.getErrors().isEmpty() ? JOptionPane.INFORMATION_MESSAGE : JOptionPane.WARNING_MESSAGE);
+        }, ex -> {
+            ex.printStackTrace();
+            importBtn.setEnabled(true);
+            JOptionPane.showMessageDialog(this, "Error importing users: " + ex.getMessage());
+        });
     }
 
     private boolean isValidCourseCode(String input) {
@@ -381,102 +361,83 @@ if (isUserWithSameNameAndCourses(username, courseInput)) {
     }
 
     private void declareHoliday(String name, String date) {
-        // Check if the holiday date already has a holiday declared
-        if (isDateAlreadyHasHoliday(date)) {
-            JOptionPane.showMessageDialog(this, "A holiday is already declared for the date " + date + ".");
-            return;
-        }
-
-        // Check for duplicate holiday name and date
-        if (isHolidayAlreadyDeclared(name, date)) {
-            JOptionPane.showMessageDialog(this, "Holiday '" + name + "' on " + date + " is already declared.");
-            return;
-        }
+        loader.run(() -> {
+            // Check if the holiday date already has a holiday declared
+            if (isDateAlreadyHasHoliday(date)) {
+                return "A holiday is already declared for the date " + date + ".";
+            }
 
-        try (BufferedWriter bw = new BufferedWriter(new FileWriter(holidayFile, true))) {
-            bw.write(name + "," + date);  // Store both holiday name and date
-            bw.newLine();
+            // Check for duplicate holiday name and date
+            if (isHolidayAlreadyDeclared(name, date)) {
+                return "Holiday '" + name + "' on " + date + " is already declared.";
+            }
 
-           
-            JOptionPane.showMessageDialog(this, "Holiday declared: " + name + " on " + date);
+            // Store both holiday name and date
+            FileTransaction.appendTo(holidayFile.toPath(), Collections.singletonList(name + "," + date));
+            return "Holiday declared: " + name + " on " + date;
+        }, message -> {
+            JOptionPane.showMessageDialog(this, message);
             loadHolidayData();
-        } catch (IOException ex) {
+        }, ex -> {
             ex.printStackTrace();
             JOptionPane.showMessageDialog(this, "Error saving holiday.");
-        }
+        });
     }
 
     private boolean isHolidayAlreadyDeclared(String name, String date) {
-        try {
-            List<String> lines = readFile(holidayFile);
-            for (String line : lines) {
-                String[] parts = line.split(",");
-                if (parts.length == 2 && parts[0].trim().equalsIgnoreCase(name) && parts[1].trim().equalsIgnoreCase(date)) {
-                    return true;  // Holiday is already declared
-                }
-            }
-        } catch (IOException ex) {
-            ex.printStackTrace();
-        }
-        return false;
+        return HolidayCalendar.shared().isDeclared(name, LocalDate.parse(date));
     }
 
     private boolean isDateAlreadyHasHoliday(String date) {
-        try {
-            List<String> lines = readFile(holidayFile);
-            for (String line : lines) {
-                String[] parts = line.split(",");
-                if (parts.length == 2 && parts[1].trim().equalsIgnoreCase(date)) {
-                    return true;  // Date already has a holiday
-                }
-            }
-        } catch (IOException ex) {
-            ex.printStackTrace();
-        }
-        return false;
+        return HolidayCalendar.shared().isHoliday(LocalDate.parse(date));
     }
 
     private void revokeHoliday(String name, String date) {
-        // Load the current holidays
-        List<String> lines = new ArrayList<>();
-        try (BufferedReader br = new BufferedReader(new FileReader(holidayFile))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                String[] parts = line.split(",");
-                if (parts.length == 2 && parts[0].trim().equalsIgnoreCase(name) && parts[1].trim().equalsIgnoreCase(date)) {
-                    continue;  // Skip the holiday to revoke
+        loader.run(() -> {
+            // Rewrites holidays.txt without the revoked entry; readers see the old or the new file, never a partial one
+            new FileTransaction().update(holidayFile.toPath(), current -> {
+                List<String> lines = new ArrayList<>();
+                for (String line : current) {
+                    String[] parts = line.split(",");
+                    if (parts.length == 2 && parts[0].trim().equalsIgnoreCase(name) && parts[1].trim().equalsIgnoreCase(date)) {
+                        continue;  // Skip the holiday to revoke
+                    }
+                    lines.add(line);
                 }
-                lines.add(line);
-            }
-        } catch (IOException ex) {
-            ex.printStackTrace();
-        }
-
-        // Write the updated holidays back to the file
-        try (BufferedWriter bw = new BufferedWriter(new FileWriter(holidayFile))) {
-            for (String line : lines) {
-                bw.write(line);
-                bw.newLine();
-            }
+                return lines;
+            }).commit();
+            return null;
+        }, done -> {
             JOptionPane.showMessageDialog(this, "Holiday revoked: " + name + " on " + date);
             loadHolidayData();
-        } catch (IOException ex) {
+        }, ex -> {
             ex.printStackTrace();
             JOptionPane.showMessageDialog(this, "Error revoking holiday.");
-        }
+        });
     }
 
     private void loadHolidayData() {
-        StringBuilder holidayData = new StringBuilder();
-        try (BufferedReader br = new BufferedReader(new FileReader(holidayFile))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                holidayData.append(line).append("\n");
+        holidayArea.setText("Loading holidays...");
+        loader.load("Holiday", "holidays", () -> {
+            StringBuilder holidayData = new StringBuilder();
+            try (BufferedReader br = new BufferedReader(new FileReader(holidayFile))) {
+                String line;
+                while ((line = br.readLine()) != null) {
+                    holidayData.append(line).append("\n");
+                }
             }
-        } catch (IOException ex) {
+            return holidayData.toString();
+        }, holidayArea::setText, ex -> {
             ex.printStackTrace();
-        }
-        holidayArea.setText(holidayData.toString());
+            holidayArea.setText("");
+        });
+    }
+
+    private void loadAlerts() {
+        loader.load("Alerts", "alerts", () -> AttendanceAlerts.report(null), alertArea::setText, ex -> {
+            ex.printStackTrace();
+            alertArea.setText("");
+        });
     }
 
     private boolean isValidDate(String date) {
@@ -487,15 +448,4 @@ if (isUserWithSameNameAndCourses(username, courseInput)) {
             return false;
         }
     }
-
-    private List<String> readFile(File file) throws IOException {
-        List<String> lines = new ArrayList<>();
-        try (BufferedReader br = new BufferedReader(new FileReader(file))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                lines.add(line);
-            }
-        }
-        return lines;
-    }
 }
@@ -0,0 +1,369 @@
+package ui;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+
+// Fires an alert when a student's attendance in a course (attended / classes held) drops below the threshold,
+// and again when it recovers. Both numbers are those of the Attendance card: a private AttendanceIndex follows
+// attendance.txt, so a student, day and course recorded again replaces its mark, and reports each pair a new
+// line changes; classes held come from AttendanceSummary.total. A crossing costs one comparison, and when a
+// course's classes held change, its pairs are compared again.
+// Alerts are appended to data/alerts.txt ("time|student|course|BELOW or RECOVERED|attended|total|threshold").
+// data/alerts_offset.txt then records what they cover: "generation|log offset|alerts.txt bytes" and a second
+// line of "course=classes held" pairs. Bytes of alerts.txt past the recorded size were appended by a refresh
+// that died before saving its offset; read() skips them and the next refresh cuts them off before alerting
+// again. refresh() holds the log lock and re-reads that offset, so processes take turns and each change
+// alerts once, whichever process sees it first. A compaction raises the alerts of the rows it folds into
+// segments and moves the offset to its new log in the same transaction (beforeSwap). Only a missing or
+// unreadable offset, or one from another generation, makes the existing history count silently. The threshold
+// (percent, default 75) is read from data/alert_threshold.txt.
+public final class AttendanceAlerts {
+    private static final Path ATTENDANCE_FILE = Paths.get("data/attendance.txt");
+    private static final Path ALERT_FILE = Paths.get("data/alerts.txt");
+    private static final Path ALERT_OFFSET_FILE = Paths.get("data/alerts_offset.txt");
+    private static final int DEFAULT_THRESHOLD = 75;
+
+    private static final Map<Path, AttendanceAlerts> alerts = new HashMap<>();
+
+    private final Path log;
+    private final Path alertFile;
+    private final Path offsetFile;
+    private final int threshold;
+    // Counts up to the covered offset, null until the first refresh
+    private AttendanceIndex index;
+    // "student|course" of the pairs below the threshold in the index
+    private final Set<String> below = new HashSet<>();
+    // course -> classes held that below was worked out with
+    private Map<String, Integer> totals = new HashMap<>();
+    // Size of alerts.txt the offset file covers
+    private long alertBytes;
+    // Where unknown courses' classes held come from during a refresh
+    private AttendanceSummary summary;
+
+    // What alerts_offset.txt says was alerted on
+    private static final class Covered {
+        final long generation;
+        final long offset;
+        // -1 when the file predates the recorded size
+        final long alertBytes;
+        final Map<String, Integer> totals;
+
+        Covered(long generation, long offset, long alertBytes, Map<String, Integer> totals) {
+            this.generation = generation;
+            this.offset = offset;
+            this.alertBytes = alertBytes;
+            this.totals = totals;
+        }
+    }
+
+    public static final class Alert {
+        private final LocalDateTime time;
+        private final String student;
+        private final String course;
+        private final boolean below;
+        private final int attended;
+        private final int total;
+        private final int threshold;
+
+        Alert(LocalDateTime time, String student, String course, boolean below, int attended, int total, int threshold) {
+            this.time = time;
+            this.student = student;
+            this.course = course;
+            this.below = below;
+            this.attended = attended;
+            this.total = total;
+            this.threshold = threshold;
+        }
+
+        static Alert parse(String line) {
+            String[] parts = line.split("\\|");
+            if (parts.length != 7) return null;
+            try {
+                return new Alert(LocalDateTime.parse(parts[0]), parts[1], parts[2], parts[3].equals("BELOW"),
+                        Integer.parseInt(parts[4]), Integer.parseInt(parts[5]), Integer.parseInt(parts[6]));
+            } catch (DateTimeParseException | NumberFormatException e) {
+                return null;
+            }
+        }
+
+        String toLine() {
+            return time + "|" + student + "|" + course + "|" + (below ? "BELOW" : "RECOVERED") + "|"
+                    + attended + "|" + total + "|" + threshold;
+        }
+
+        public LocalDateTime getTime() {
+            return time;
+        }
+
+        public String getStudent() {
+            return student;
+        }
+
+        public String getCourse() {
+            return course;
+        }
+
+        // True when attendance fell below the threshold, false when it came back above it
+        public boolean isBelow() {
+            return below;
+        }
+
+        public int getAttended() {
+            return attended;
+        }
+
+        // Classes held when the alert fired
+        public int getTotal() {
+            return total;
+        }
+
+        @Override
+        public String toString() {
+            return time.toLocalDate() + " " + time.toLocalTime() + "  " + student + " - "
+                    + AttendanceSummary.courseName(course) + ": " + attended + "/" + total + " classes ("
+                    + attended * 100 / total + "%), " + (below ? "below " : "back above ") + threshold + "%";
+        }
+    }
+
+    private AttendanceAlerts(Path log) {
+        this.log = log;
+        this.alertFile = log.resolveSibling("alerts.txt");
+        this.offsetFile = log.resolveSibling("alerts_offset.txt");
+        this.threshold = readThreshold(log.resolveSibling("alert_threshold.txt"));
+    }
+
+    public static AttendanceAlerts shared() {
+        return of(ATTENDANCE_FILE);
+    }
+
+    // The alerts of a log, kept in alerts.txt next to it
+    static synchronized AttendanceAlerts of(Path log) {
+        return alerts.computeIfAbsent(log.toAbsolutePath().normalize(), AttendanceAlerts::new);
+    }
+
+    public int getThreshold() {
+        return threshold;
+    }
+
+    // Processes the lines appended since the covered offset and records the alerts they trigger
+    public List<Alert> refresh() throws IOException {
+        DataLock lock = AttendanceSegments.logLock(log);
+        lock.lock();
+        try {
+            synchronized (this) {
+                return process();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Called by the compactor holding the log lock, before it swaps in the new generation: every row left in
+    // the log alerts now, and the transaction moves the covered offset to the end of the new log, the tail.
+    // A log nobody alerts on yet is left alone.
+    static void beforeSwap(Path log, long generation, List<String> tail, FileTransaction transaction)
+            throws IOException {
+        AttendanceAlerts alerts = of(log);
+        if (!Files.exists(alerts.offsetFile)) return;
+        alerts.refresh();
+        long bytes = 0;
+        for (String line : tail) {
+            bytes += (line + System.lineSeparator()).getBytes(StandardCharsets.UTF_8).length;
+        }
+        synchronized (alerts) {
+            transaction.write(alerts.offsetFile, alerts.offsetLines(generation, bytes));
+        }
+    }
+
+    private List<Alert> process() throws IOException {
+        long size = Files.exists(log) ? Files.size(log) : 0;
+        AttendanceSegments segments = AttendanceSegments.of(log);
+        summary = AttendanceSummary.shared();
+        Covered covered = readOffset(offsetFile);
+        if (covered == null || covered.generation != segments.getGeneration() || covered.offset > size) {
+            // First run, or a compaction or rewrite the alerts did not follow: existing history does not alert
+            totals = new HashMap<>();
+            load(segments, size);
+            alertBytes = Files.exists(alertFile) ? Files.size(alertFile) : 0;
+            saveOffset();
+            return Collections.emptyList();
+        }
+        dropUnsaved(covered.alertBytes);
+        alertBytes = covered.alertBytes;
+        if (index == null || index.getGeneration() != covered.generation || index.getOffset() > covered.offset) {
+            totals = new HashMap<>(covered.totals);
+            load(segments, covered.offset);
+        } else {
+            // Another process alerted on these changes
+            retotal(covered.totals, null);
+            if (index.getOffset() < covered.offset) {
+                index.advance(covered.offset, (student, course, attended, missed, lastDay) ->
+                        apply(student, course, attended, missed, null));
+            }
+        }
+
+        List<Alert> fired = new ArrayList<>();
+        Map<String, Integer> held = new HashMap<>();
+        for (String course : totals.keySet()) {
+            held.put(course, summary.total(course));
+        }
+        retotal(held, fired);
+        index.advance(size, (student, course, attended, missed, lastDay) ->
+                apply(student, course, attended, missed, fired));
+        if (index.getOffset() == covered.offset && totals.equals(covered.totals)) return fired;
+
+        List<String> lines = new ArrayList<>();
+        for (Alert alert : fired) {
+            lines.add(alert.toLine());
+        }
+        // Appended first: a crash before the offset is saved leaves lines past alertBytes, which are dropped
+        FileTransaction.appendTo(alertFile, lines);
+        if (!lines.isEmpty()) alertBytes = Files.size(alertFile);
+        saveOffset();
+        return fired;
+    }
+
+    // Counts the segments and the log up to limit without alerting
+    private void load(AttendanceSegments segments, long limit) throws IOException {
+        below.clear();
+        index = AttendanceIndex.open(log, segments);
+        index.advance(limit, null);
+        index.forEach((student, course, attended, missed, lastDay) -> apply(student, course, attended, missed, null));
+    }
+
+    // Takes new classes held; the pairs of every course whose number changed are compared again
+    private void retotal(Map<String, Integer> next, List<Alert> fired) {
+        Set<String> changed = new HashSet<>();
+        for (Map.Entry<String, Integer> entry : next.entrySet()) {
+            if (!entry.getValue().equals(totals.put(entry.getKey(), entry.getValue()))) changed.add(entry.getKey());
+        }
+        if (changed.isEmpty()) return;
+        index.forEach((student, course, attended, missed, lastDay) -> {
+            if (changed.contains(course)) apply(student, course, attended, missed, fired);
+        });
+    }
+
+    // Cuts off alerts appended by a refresh that died before saving its offset
+    private void dropUnsaved(long saved) throws IOException {
+        if (saved < 0 || !Files.exists(alertFile)) return;
+        try (FileChannel channel = FileChannel.open(alertFile, StandardOpenOption.WRITE)) {
+            if (channel.size() > saved) {
+                channel.truncate(saved);
+                channel.force(true);
+            }
+        }
+    }
+
+    private void saveOffset() throws IOException {
+        new FileTransaction()
+                .write(offsetFile, offsetLines(index.getGeneration(), index.getOffset()))
+                .commit();
+    }
+
+    private List<String> offsetLines(long generation, long offset) {
+        StringBuilder held = new StringBuilder();
+        for (Map.Entry<String, Integer> entry : new TreeMap<>(totals).entrySet()) {
+            if (held.length() > 0) held.append(',');
+            held.append(entry.getKey()).append('=').append(entry.getValue());
+        }
+        return Arrays.asList(generation + "|" + offset + "|" + alertBytes, held.toString());
+    }
+
+    // null if the file is missing or unreadable
+    private static Covered readOffset(Path file) {
+        if (!Files.exists(file)) return null;
+        try {
+            List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+            if (lines.isEmpty()) return null;
+            String[] parts = lines.get(0).trim().split("\\|");
+            if (parts.length != 2 && parts.length != 3) return null;
+            Map<String, Integer> totals = new HashMap<>();
+            if (lines.size() > 1 && !lines.get(1).isBlank()) {
+                for (String pair : lines.get(1).trim().split(",")) {
+                    int split = pair.lastIndexOf('=');
+                    if (split > 0) totals.put(pair.substring(0, split), Integer.parseInt(pair.substring(split + 1)));
+                }
+            }
+            return new Covered(Long.parseLong(parts[0]), Long.parseLong(parts[1]),
+                    parts.length == 3 ? Long.parseLong(parts[2]) : -1, totals);
+        } catch (IOException | NumberFormatException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    // Alerts in data/alerts.txt up to the size its offset file covers, newest first
+    public static List<Alert> read() throws IOException {
+        List<Alert> alerts = new ArrayList<>();
+        if (!Files.exists(ALERT_FILE)) return alerts;
+        Covered covered = readOffset(ALERT_OFFSET_FILE);
+        long limit = covered == null || covered.alertBytes < 0 ? Long.MAX_VALUE : covered.alertBytes;
+        LogTail.readFrom(ALERT_FILE, 0, limit, line -> {
+            Alert alert = Alert.parse(line);
+            if (alert != null) alerts.add(alert);
+        });
+        Collections.reverse(alerts);
+        return alerts;
+    }
+
+    // Latest alert per (student, course) that is still below the threshold, newest first
+    public static List<Alert> active(List<Alert> newestFirst) {
+        Set<String> seen = new HashSet<>();
+        List<Alert> active = new ArrayList<>();
+        for (Alert alert : newestFirst) {
+            if (seen.add(AttendanceDedupIndex.key(alert.getStudent(), alert.getCourse())) && alert.isBelow()) {
+                active.add(alert);
+            }
+        }
+        return active;
+    }
+
+    // Text for the dashboards' Alerts cards: students still below the threshold, then the full history.
+    // A null course lists every course.
+    public static String report(String course) throws IOException {
+        List<Alert> alerts = new ArrayList<>();
+        for (Alert alert : read()) {
+            if (course == null || alert.getCourse().equals(course)) alerts.add(alert);
+        }
+        List<Alert> active = active(alerts);
+        StringBuilder text = new StringBuilder("Below threshold now (" + active.size() + "):\n");
+        for (Alert alert : active) {
+            text.append("  ").append(alert).append('\n');
+        }
+        text.append("\nHistory:\n");
+        for (Alert alert : alerts) {
+            text.append("  ").append(alert).append('\n');
+        }
+        return text.toString();
+    }
+
+    // Records a pair's new counts; a crossing is added to fired unless it is null. Below means what the
+    // Attendance card highlights: attended under threshold percent of the classes held (none held, no alert).
+    private void apply(String student, String course, int attended, int missed, List<Alert> fired) {
+        String key = AttendanceDedupIndex.key(student, course);
+        int total = totals.computeIfAbsent(course, summary::total);
+        boolean isBelow = total > 0 && attended * 100 < threshold * total;
+        boolean wasBelow = isBelow ? !below.add(key) : below.remove(key);
+        if (fired != null && isBelow != wasBelow) {
+            fired.add(new Alert(LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS), student, course, isBelow,
+                    attended, total, threshold));
+        }
+    }
+
+    private static int readThreshold(Path file) {
+        try {
+            if (Files.exists(file)) {
+                return Integer.parseInt(Files.readString(file).trim());
+            }
+        } catch (IOException | NumberFormatException e) {
+            e.printStackTrace();
+        }
+        return DEFAULT_THRESHOLD;
+    }
+}
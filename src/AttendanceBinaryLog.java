@@ -0,0 +1,372 @@
+package ui;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.LocalDate;
+import java.time.format.TextStyle;
+import java.util.*;
+import java.util.function.Consumer;
+
+// Fixed-width binary form of attendance.txt, read through memory maps (see BinaryAttendanceStore).
+// Header (16 bytes): magic "ATTB", version, slot size, reserved.
+// Entries take whole 64-byte slots. A record is one slot: flags (bit 0 present, bit 1 date written with a
+// "(Weekday)" suffix), student length, course length, a spare byte, epoch day, the student in 40 bytes and
+// the course in 16 bytes of UTF-8. A line the record slot cannot give back byte for byte (a longer name, a
+// date in another form, a malformed line) is stored as it is: flags with bit 2 set, three spare bytes, its
+// length, then its bytes, running on into as many following slots as it needs. So text to binary and back
+// gives the same lines. Appends add whole entries; a reader stops before an entry that is not all there yet.
+public final class AttendanceBinaryLog {
+    static final int MAGIC = 0x41545442;
+    static final short VERSION = 2;
+    static final int HEADER_SIZE = 16;
+    static final int SLOT_SIZE = 64;
+
+    private static final int STUDENT_BYTES = 40;
+    private static final int COURSE_BYTES = 16;
+    private static final int STUDENT_OFFSET = 8;
+    private static final int COURSE_OFFSET = STUDENT_OFFSET + STUDENT_BYTES;
+    // A line entry's bytes start after its flags and length
+    private static final int LINE_OFFSET = 8;
+    private static final int FLAG_PRESENT = 1;
+    private static final int FLAG_WEEKDAY = 2;
+    private static final int FLAG_LINE = 4;
+
+    // Largest mapping that stays a whole number of slots
+    private static final long MAX_CHUNK = (Integer.MAX_VALUE / SLOT_SIZE) * (long) SLOT_SIZE;
+    private static final int COPY_BUFFER = 1 << 16;
+
+    private interface EntryVisitor {
+        void record(String student, String course, int epochDay, int flags);
+
+        void line(byte[] bytes, int length);
+    }
+
+    private AttendanceBinaryLog() {
+    }
+
+    // Appends the records after the first end bytes of the file, which must be where its last whole entry
+    // ends (a torn append past it is dropped), and forces them; returns the new end. 0 starts a new file.
+    public static long append(Path file, long end, List<AttendanceRecord> records) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(records.size() * SLOT_SIZE + HEADER_SIZE);
+        if (end == 0) out.write(header());
+        for (AttendanceRecord record : records) {
+            out.write(entry(record.toLine().getBytes(StandardCharsets.UTF_8)));
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            if (end > 0) checkHeader(channel);
+            if (channel.size() > end) channel.truncate(end);
+            ByteBuffer buffer = ByteBuffer.wrap(out.toByteArray());
+            long position = end;
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+            channel.force(false);
+            return position;
+        }
+    }
+
+    // Feeds the records of the entries from offset onwards (0 for the first) to the consumer and returns the
+    // offset just past the last whole entry. Stored lines that do not parse as a record are skipped.
+    public static long scan(Path file, long offset, Consumer<AttendanceRecord> consumer) throws IOException {
+        return read(file, offset, new EntryVisitor() {
+            @Override
+            public void record(String student, String course, int epochDay, int flags) {
+                consumer.accept(toRecord(student, course, epochDay, flags));
+            }
+
+            @Override
+            public void line(byte[] bytes, int length) {
+                while (length > 0 && bytes[length - 1] == '\r') length--;
+                AttendanceRecord record = AttendanceRecord.parse(new String(bytes, 0, length, StandardCharsets.UTF_8));
+                if (record != null) consumer.accept(record);
+            }
+        });
+    }
+
+    public static List<AttendanceRecord> readAll(Path file) throws IOException {
+        List<AttendanceRecord> records = new ArrayList<>();
+        scan(file, 0, records::add);
+        return records;
+    }
+
+    // Writes the log's compacted segment rows, if any, then every line of the text file as it is, into a
+    // temporary file next to the target that replaces it once complete; returns the number of entries.
+    // The log lock keeps writers and compaction out meanwhile.
+    public static long textToBinary(Path text, Path binary) throws IOException {
+        Path temp = tempFor(binary);
+        long[] entries = {0};
+        DataLock logLock = AttendanceSegments.logLock(text);
+        logLock.lock();
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temp), COPY_BUFFER)) {
+            out.write(header());
+            try {
+                AttendanceSegments.of(text).scan(line -> {
+                    try {
+                        out.write(entry(line.getBytes(StandardCharsets.UTF_8)));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    entries[0]++;
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            if (Files.exists(text)) {
+                try (InputStream in = Files.newInputStream(text)) {
+                    entries[0] += copyLines(in, out);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        } finally {
+            logLock.unlock();
+        }
+        replace(temp, binary);
+        return entries[0];
+    }
+
+    // Writes every entry back as a line of text, the same way through a temporary file
+    public static void binaryToText(Path binary, Path text) throws IOException {
+        Path temp = tempFor(text);
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temp), COPY_BUFFER)) {
+            try {
+                read(binary, 0, new EntryVisitor() {
+                    @Override
+                    public void record(String student, String course, int epochDay, int flags) {
+                        byte[] bytes = toRecord(student, course, epochDay, flags).toLine().getBytes(StandardCharsets.UTF_8);
+                        write(bytes, bytes.length);
+                    }
+
+                    @Override
+                    public void line(byte[] bytes, int length) {
+                        write(bytes, length);
+                    }
+
+                    private void write(byte[] bytes, int length) {
+                        try {
+                            out.write(bytes, 0, length);
+                            out.write('\n');
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        replace(temp, text);
+    }
+
+    // Splits the stream at '\n' and writes each line as an entry, a last line without a break included
+    private static long copyLines(InputStream in, OutputStream out) throws IOException {
+        byte[] buffer = new byte[COPY_BUFFER];
+        byte[] line = new byte[256];
+        int length = 0;
+        long lines = 0;
+        int read;
+        while ((read = in.read(buffer)) > 0) {
+            int start = 0;
+            for (int i = 0; i < read; i++) {
+                if (buffer[i] != '\n') continue;
+                int part = i - start;
+                if (length == 0) {
+                    out.write(entry(buffer, start, part));
+                } else {
+                    line = append(line, length, buffer, start, part);
+                    out.write(entry(line, 0, length + part));
+                    length = 0;
+                }
+                lines++;
+                start = i + 1;
+            }
+            line = append(line, length, buffer, start, read - start);
+            length += read - start;
+        }
+        if (length > 0) {
+            out.write(entry(line, 0, length));
+            lines++;
+        }
+        return lines;
+    }
+
+    private static byte[] append(byte[] line, int length, byte[] bytes, int from, int count) {
+        if (length + count > line.length) line = Arrays.copyOf(line, Math.max(line.length * 2, length + count));
+        System.arraycopy(bytes, from, line, length, count);
+        return line;
+    }
+
+    private static long read(Path file, long offset, EntryVisitor visitor) throws IOException {
+        if (!Files.exists(file)) return offset;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size == 0) return 0;
+            checkHeader(channel);
+
+            byte[] student = new byte[STUDENT_BYTES];
+            byte[] course = new byte[COURSE_BYTES];
+            byte[] line = new byte[256];
+            long position = Math.max(offset, HEADER_SIZE);
+            long end = HEADER_SIZE + (size - HEADER_SIZE) / SLOT_SIZE * SLOT_SIZE;
+            while (position < end) {
+                int length = (int) Math.min(MAX_CHUNK, end - position);
+                MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                int entry = 0;
+                while (entry < length) {
+                    int flags = map.get(entry);
+                    if ((flags & FLAG_LINE) == 0) {
+                        int studentLength = map.get(entry + 1) & 0xFF;
+                        int courseLength = map.get(entry + 2) & 0xFF;
+                        int epochDay = map.getInt(entry + 4);
+                        map.position(entry + STUDENT_OFFSET);
+                        map.get(student, 0, studentLength);
+                        map.position(entry + COURSE_OFFSET);
+                        map.get(course, 0, courseLength);
+                        visitor.record(new String(student, 0, studentLength, StandardCharsets.UTF_8),
+                                new String(course, 0, courseLength, StandardCharsets.UTF_8), epochDay, flags);
+                        entry += SLOT_SIZE;
+                        continue;
+                    }
+                    int lineLength = map.getInt(entry + 4);
+                    if (lineLength < 0) throw new IOException("Corrupt entry at byte " + (position + entry) + " of " + file);
+                    long slots = slots(lineLength);
+                    // Still being written, or past the end of this mapping: map again from here
+                    if (entry + slots * SLOT_SIZE > length) break;
+                    if (lineLength > line.length) line = new byte[Math.max(line.length * 2, lineLength)];
+                    map.position(entry + LINE_OFFSET);
+                    map.get(line, 0, lineLength);
+                    visitor.line(line, lineLength);
+                    entry += (int) (slots * SLOT_SIZE);
+                }
+                if (entry == 0) break;
+                position += entry;
+            }
+            return position;
+        }
+    }
+
+    // The slots of a line entry of that many bytes
+    private static long slots(int lineLength) {
+        return (LINE_OFFSET + (long) lineLength + SLOT_SIZE - 1) / SLOT_SIZE;
+    }
+
+    private static byte[] entry(byte[] line) {
+        return entry(line, 0, line.length);
+    }
+
+    // A record slot if the line parses and the slot gives back exactly these bytes, else a line entry
+    private static byte[] entry(byte[] bytes, int from, int length) {
+        String text = new String(bytes, from, length, StandardCharsets.UTF_8);
+        AttendanceRecord record = AttendanceRecord.parse(text);
+        if (record != null) {
+            byte[] encoded = text.getBytes(StandardCharsets.UTF_8);
+            byte[] student = record.getStudent().getBytes(StandardCharsets.UTF_8);
+            byte[] course = record.getCourse().getBytes(StandardCharsets.UTF_8);
+            int day = record.getEpochDay();
+            if (day != AttendanceColumns.NO_DAY && student.length <= STUDENT_BYTES && course.length <= COURSE_BYTES
+                    && Arrays.equals(encoded, 0, encoded.length, bytes, from, from + length)) {
+                boolean weekday = record.getDate().equals(formatDate(day, true));
+                if (weekday || record.getDate().equals(formatDate(day, false))) {
+                    ByteBuffer slot = ByteBuffer.allocate(SLOT_SIZE);
+                    slot.put((byte) ((record.isPresent() ? FLAG_PRESENT : 0) | (weekday ? FLAG_WEEKDAY : 0)));
+                    slot.put((byte) student.length);
+                    slot.put((byte) course.length);
+                    slot.put((byte) 0);
+                    slot.putInt(day);
+                    slot.put(student);
+                    slot.position(COURSE_OFFSET);
+                    slot.put(course);
+                    return slot.array();
+                }
+            }
+        }
+        ByteBuffer slots = ByteBuffer.allocate((int) (slots(length) * SLOT_SIZE));
+        slots.put((byte) FLAG_LINE);
+        slots.put(new byte[3]);
+        slots.putInt(length);
+        slots.put(bytes, from, length);
+        return slots.array();
+    }
+
+    // Gives back the date text using the weekday flag
+    private static AttendanceRecord toRecord(String student, String course, int epochDay, int flags) {
+        return new AttendanceRecord(student, formatDate(epochDay, (flags & FLAG_WEEKDAY) != 0), course,
+                (flags & FLAG_PRESENT) != 0);
+    }
+
+    private static byte[] header() {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE);
+        buffer.putInt(MAGIC);
+        buffer.putShort(VERSION);
+        buffer.putShort((short) SLOT_SIZE);
+        buffer.putLong(0L);
+        return buffer.array();
+    }
+
+    private static void checkHeader(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        while (header.hasRemaining()) {
+            if (channel.read(header, header.position()) < 0) break;
+        }
+        header.flip();
+        if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC) {
+            throw new IOException("Not an attendance log");
+        }
+        short version = header.getShort();
+        short slotSize = header.getShort();
+        if (version != VERSION || slotSize != SLOT_SIZE) {
+            throw new IOException("Unsupported attendance log version " + version);
+        }
+    }
+
+    private static Path tempFor(Path target) {
+        return target.toAbsolutePath().resolveSibling("." + target.getFileName() + ".tmp");
+    }
+
+    // Syncs the finished temporary file and moves it over the target in one step
+    private static void replace(Path temp, Path target) throws IOException {
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    static String formatDate(long epochDay, boolean weekday) {
+        LocalDate day = LocalDate.ofEpochDay(epochDay);
+        if (!weekday) return day.toString();
+        return day + " (" + day.getDayOfWeek().getDisplayName(TextStyle.FULL, Locale.ENGLISH) + ")";
+    }
+
+    // Usage: AttendanceBinaryLog to-binary <text> <binary> | to-text <binary> <text>
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3) {
+            System.err.println("Usage: AttendanceBinaryLog to-binary|to-text <source> <target>");
+            System.exit(1);
+        }
+        Path source = Paths.get(args[1]);
+        Path target = Paths.get(args[2]);
+        switch (args[0]) {
+            case "to-binary" -> {
+                long entries = textToBinary(source, target);
+                System.out.println("Converted " + source + " -> " + target + " (" + entries + " lines)");
+            }
+            case "to-text" -> {
+                binaryToText(source, target);
+                System.out.println("Converted " + source + " -> " + target);
+            }
+            default -> {
+                System.err.println("Unknown mode: " + args[0]);
+                System.exit(1);
+            }
+        }
+    }
+}
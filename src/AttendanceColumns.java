@@ -0,0 +1,67 @@
+package ui;
+
+import java.util.Arrays;
+
+// Attendance rows held column-wise in parallel primitive arrays: student id, epoch day, course id and
+// a presence bitset. Names live once in the two symbol tables; a row costs about 12 bytes.
+// Not thread-safe; AttendanceIndex guards the instance it owns.
+public final class AttendanceColumns {
+    // Epoch day of rows whose date could not be parsed
+    public static final int NO_DAY = Integer.MIN_VALUE;
+
+    private final SymbolTable students = new SymbolTable();
+    private final SymbolTable courses = new SymbolTable();
+
+    private int[] student = new int[1024];
+    private int[] epochDay = new int[1024];
+    private int[] course = new int[1024];
+    private long[] present = new long[1024 / 64];
+    private int size;
+
+    public int add(String studentName, String courseName, int day, boolean isPresent) {
+        if (size == student.length) grow();
+
+        int row = size++;
+        student[row] = students.intern(studentName);
+        epochDay[row] = day;
+        course[row] = courses.intern(courseName);
+        if (isPresent) present[row >>> 6] |= 1L << row;
+        return row;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getStudent(int row) {
+        return student[row];
+    }
+
+    public int getEpochDay(int row) {
+        return epochDay[row];
+    }
+
+    public int getCourse(int row) {
+        return course[row];
+    }
+
+    public boolean isPresent(int row) {
+        return (present[row >>> 6] & (1L << row)) != 0;
+    }
+
+    public SymbolTable getStudents() {
+        return students;
+    }
+
+    public SymbolTable getCourses() {
+        return courses;
+    }
+
+    private void grow() {
+        int capacity = student.length * 2;
+        student = Arrays.copyOf(student, capacity);
+        epochDay = Arrays.copyOf(epochDay, capacity);
+        course = Arrays.copyOf(course, capacity);
+        present = Arrays.copyOf(present, capacity / 64);
+    }
+}
@@ -0,0 +1,415 @@
+package ui;
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+// Compacts an attendance log into a new generation of AttendanceSegments. The complete lines in the log are
+// sorted by (course, day, student) and merged with the current segments; where a student|date|course repeats
+// the last write wins (the log over the segments, a later log line over an earlier one), and blank or
+// malformed lines are dropped. Long logs are sorted in runs of RUN_ROWS lines spilled to disk, so memory
+// stays bounded. prepare() does all of that without blocking appends, counting the new segments' rows per
+// (student, course) as they are written; swap() then replaces the manifest, those counters (AttendanceCounters)
+// and the log, cut down to the lines appended meanwhile, in one FileTransaction, holding the log lock that
+// every process's appends take (AttendanceSegments.logLock). The rows still in the log raise their alerts
+// first, and the alerts' offset moves to the new log in the same transaction. Only one process compacts at a
+// time: prepare() and swap() are called holding AttendanceSegments.compactionLock.
+// Usage: AttendanceCompactor [attendance.txt]
+public final class AttendanceCompactor {
+    static final int SEGMENT_ROWS = 64 * 1024;
+    private static final int RUN_ROWS = 256 * 1024;
+
+    private final Path log;
+
+    public static final class Result {
+        private final long generation;
+        private final int segments;
+        private final long logRows;
+        private final long segmentRowsBefore;
+        private final long rows;
+        private final long logBytesBefore;
+        private final long logBytesAfter;
+        private final long nanos;
+
+        Result(long generation, int segments, long logRows, long segmentRowsBefore, long rows, long logBytesBefore,
+               long logBytesAfter, long nanos) {
+            this.generation = generation;
+            this.segments = segments;
+            this.logRows = logRows;
+            this.segmentRowsBefore = segmentRowsBefore;
+            this.rows = rows;
+            this.logBytesBefore = logBytesBefore;
+            this.logBytesAfter = logBytesAfter;
+            this.nanos = nanos;
+        }
+
+        public long getGeneration() {
+            return generation;
+        }
+
+        public int getSegments() {
+            return segments;
+        }
+
+        // Rows in the segments after compaction
+        public long getRows() {
+            return rows;
+        }
+
+        // Log lines and old segment rows that did not survive: repeated keys, blank and malformed lines
+        public long getDropped() {
+            return logRows + segmentRowsBefore - rows;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("generation %d: %d log lines + %d segment rows -> %d rows in %d segments"
+                            + " (%d dropped), log %d -> %d bytes in %.1f ms", generation, logRows, segmentRowsBefore,
+                    rows, segments, getDropped(), logBytesBefore, logBytesAfter, nanos / 1e6);
+        }
+    }
+
+    // New segments written but not yet visible
+    public final class Pending {
+        private final AttendanceSegments previous;
+        private final long generation;
+        private final List<AttendanceSegments.Segment> segments;
+        private final AttendanceCounters counters;
+        private final long cut;
+        private final long logRows;
+        private final long rows;
+        private final long started;
+
+        Pending(AttendanceSegments previous, long generation, List<AttendanceSegments.Segment> segments,
+                AttendanceCounters counters, long cut, long logRows, long rows, long started) {
+            this.previous = previous;
+            this.generation = generation;
+            this.segments = segments;
+            this.counters = counters;
+            this.cut = cut;
+            this.logRows = logRows;
+            this.rows = rows;
+            this.started = started;
+        }
+
+        // Makes the new generation current. Appends in every process wait on the log lock while this runs,
+        // so no row lands between reading the tail and replacing the log.
+        public Result swap() throws IOException {
+            DataLock lock = AttendanceSegments.logLock(log);
+            lock.lock();
+            try {
+                if (AttendanceSegments.of(log).getGeneration() != previous.getGeneration()) {
+                    throw new IOException("Segments of " + log + " changed since the compaction started");
+                }
+                List<String> tail = new ArrayList<>();
+                LogTail.readFrom(log, cut, tail::add);
+
+                List<String> manifest = new ArrayList<>();
+                manifest.add(Long.toString(generation));
+                for (AttendanceSegments.Segment segment : segments) {
+                    manifest.add(segment.toLine());
+                }
+                FileTransaction transaction = new FileTransaction()
+                        .write(log, tail)
+                        .write(AttendanceSegments.manifestFor(log), manifest)
+                        .write(AttendanceCounters.fileFor(log), counters.toLines());
+                AttendanceAlerts.beforeSwap(log, generation, tail, transaction);
+                transaction.commit();
+                return new Result(generation, segments.size(), logRows, previous.getRows(), rows, cut,
+                        Files.size(log), System.nanoTime() - started);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    // A row ready to sort, parsed once
+    private static final class Entry {
+        final AttendanceRecord record;
+        final int day;
+
+        Entry(AttendanceRecord record) {
+            this.record = record;
+            this.day = record.getEpochDay();
+        }
+    }
+
+    public AttendanceCompactor(Path log) {
+        this.log = log;
+    }
+
+    public Pending prepare() throws IOException {
+        long started = System.nanoTime();
+        AttendanceSegments previous = AttendanceSegments.of(log);
+        Path dir = AttendanceSegments.directoryFor(log);
+        Files.createDirectories(dir);
+        removeUnreferenced(dir, previous);
+        long generation = previous.getGeneration() + 1;
+
+        // The log is sorted in runs of at most RUN_ROWS lines; all but the last are spilled next to the segments
+        List<Path> runs = new ArrayList<>();
+        List<Entry> chunk = new ArrayList<>();
+        long[] logRows = {0};
+        long cut;
+        List<Source> sources = new ArrayList<>();
+        SegmentWriter out = new SegmentWriter(dir, generation);
+        try {
+            try {
+                cut = LogTail.readFrom(log, 0, line -> {
+                    logRows[0]++;
+                    AttendanceRecord record = AttendanceRecord.parse(line);
+                    if (record == null) return;
+                    chunk.add(new Entry(record));
+                    if (chunk.size() == RUN_ROWS) {
+                        try {
+                            runs.add(spill(dir.resolve("run-" + generation + "-" + runs.size() + ".tmp"), latest(chunk)));
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                        chunk.clear();
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+
+            // Sources in write order: segments, then the runs, then what is left in memory
+            List<Path> segmentFiles = new ArrayList<>();
+            for (AttendanceSegments.Segment segment : previous.getSegments()) {
+                segmentFiles.add(segment.getFile());
+            }
+            sources.add(new FileSource(segmentFiles));
+            for (Path run : runs) {
+                sources.add(new FileSource(Collections.singletonList(run)));
+            }
+            Iterator<Entry> remaining = latest(chunk).iterator();
+            sources.add(() -> remaining.hasNext() ? remaining.next() : null);
+            merge(sources, out);
+        } finally {
+            for (Source source : sources) {
+                source.close();
+            }
+            out.close();
+            for (Path run : runs) {
+                Files.deleteIfExists(run);
+            }
+        }
+        return new Pending(previous, generation, out.segments, out.counters.build(generation), cut, logRows[0],
+                out.rows, started);
+    }
+
+    // k-way merge of sorted, duplicate-free sources; where sources share a key the one written last wins
+    private static void merge(List<Source> sources, SegmentWriter out) throws IOException {
+        PriorityQueue<Cursor> queue = new PriorityQueue<>((a, b) -> {
+            int order = compare(a.entry, b.entry);
+            return order != 0 ? order : Integer.compare(b.rank, a.rank);
+        });
+        for (int rank = 0; rank < sources.size(); rank++) {
+            Cursor cursor = new Cursor(sources.get(rank), rank);
+            if (cursor.advance()) queue.add(cursor);
+        }
+        while (!queue.isEmpty()) {
+            Cursor top = queue.poll();
+            Entry winner = top.entry;
+            if (top.advance()) queue.add(top);
+            while (!queue.isEmpty() && compare(queue.peek().entry, winner) == 0) {
+                Cursor older = queue.poll();
+                if (older.advance()) queue.add(older);
+            }
+            out.write(winner);
+        }
+    }
+
+    // Sorts a chunk of log lines and keeps the last line of each key; the sort is stable, so that is the latest
+    private static List<Entry> latest(List<Entry> entries) {
+        entries.sort(AttendanceCompactor::compare);
+        List<Entry> latest = new ArrayList<>(entries.size());
+        for (Entry entry : entries) {
+            int last = latest.size() - 1;
+            if (last >= 0 && compare(latest.get(last), entry) == 0) {
+                latest.set(last, entry);
+            } else {
+                latest.add(entry);
+            }
+        }
+        return latest;
+    }
+
+    private static Path spill(Path file, List<Entry> entries) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (Entry entry : entries) {
+                writer.write(entry.record.toLine());
+                writer.write('\n');
+            }
+        }
+        return file;
+    }
+
+    private static int compare(Entry a, Entry b) {
+        return AttendanceSegments.compare(a.record, a.day, b.record, b.day);
+    }
+
+    // Anything in the segment directory the manifest does not list: older generations, and runs or segments
+    // of a compaction that did not finish. Readers get a full compaction cycle to finish with the previous
+    // generation before its files go.
+    private static void removeUnreferenced(Path dir, AttendanceSegments current) throws IOException {
+        Set<Path> keep = new HashSet<>();
+        for (AttendanceSegments.Segment segment : current.getSegments()) {
+            keep.add(segment.getFile().getFileName());
+            keep.add(segment.getIndexFile().getFileName());
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+            for (Path file : files) {
+                if (!keep.contains(file.getFileName())) Files.delete(file);
+            }
+        }
+    }
+
+    // Sorted entries, null at the end
+    private interface Source extends Closeable {
+        Entry next() throws IOException;
+
+        @Override
+        default void close() throws IOException {
+        }
+    }
+
+    private static final class Cursor {
+        final Source source;
+        final int rank;
+        Entry entry;
+
+        Cursor(Source source, int rank) {
+            this.source = source;
+            this.rank = rank;
+        }
+
+        boolean advance() throws IOException {
+            entry = source.next();
+            return entry != null;
+        }
+    }
+
+    // The rows of segment or run files, read one file after the other
+    private static final class FileSource implements Source {
+        private final Iterator<Path> files;
+        private BufferedReader reader;
+
+        FileSource(List<Path> files) {
+            this.files = files.iterator();
+        }
+
+        @Override
+        public Entry next() throws IOException {
+            while (true) {
+                if (reader == null) {
+                    if (!files.hasNext()) return null;
+                    reader = Files.newBufferedReader(files.next(), StandardCharsets.UTF_8);
+                }
+                String line = reader.readLine();
+                if (line == null) {
+                    reader.close();
+                    reader = null;
+                    continue;
+                }
+                AttendanceRecord record = AttendanceRecord.parse(line);
+                if (record != null) return new Entry(record);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (reader != null) reader.close();
+        }
+    }
+
+    // Writes rows into segments of up to SEGMENT_ROWS lines, each synced, with its sparse index
+    private static final class SegmentWriter implements Closeable {
+        private final Path dir;
+        private final long generation;
+        private final List<AttendanceSegments.Segment> segments = new ArrayList<>();
+        private final AttendanceCounters.Builder counters = new AttendanceCounters.Builder();
+        private long rows;
+
+        private Path file;
+        private FileChannel channel;
+        private OutputStream out;
+        private List<String> index;
+        private int segmentRows;
+        private long position;
+        private Entry first;
+        private Entry last;
+
+        SegmentWriter(Path dir, long generation) {
+            this.dir = dir;
+            this.generation = generation;
+        }
+
+        void write(Entry entry) throws IOException {
+            if (out == null) open();
+            if (segmentRows % AttendanceSegments.INDEX_INTERVAL == 0 || !entry.record.getCourse().equals(last.record.getCourse())) {
+                index.add(entry.record.getCourse() + "|" + entry.day + "|" + position);
+            }
+            byte[] bytes = (entry.record.toLine() + "\n").getBytes(StandardCharsets.UTF_8);
+            out.write(bytes);
+            counters.add(entry.record, entry.day);
+            position += bytes.length;
+            if (first == null) first = entry;
+            last = entry;
+            segmentRows++;
+            rows++;
+            if (segmentRows == SEGMENT_ROWS) finish();
+        }
+
+        private void open() throws IOException {
+            file = dir.resolve(String.format("seg-%d-%04d.txt", generation, segments.size()));
+            channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            out = new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 20);
+            index = new ArrayList<>();
+            segmentRows = 0;
+            position = 0;
+            first = null;
+        }
+
+        private void finish() throws IOException {
+            out.flush();
+            channel.force(true);
+            out.close();
+            out = null;
+            Path indexFile = AttendanceSegments.indexFileFor(file);
+            Files.write(indexFile, index, StandardCharsets.UTF_8, StandardOpenOption.CREATE_NEW);
+            try (FileChannel indexChannel = FileChannel.open(indexFile, StandardOpenOption.WRITE)) {
+                indexChannel.force(true);
+            }
+            segments.add(new AttendanceSegments.Segment(file, segmentRows, first.record.getCourse(), first.day,
+                    last.record.getCourse(), last.day));
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (out != null) finish();
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length > 1) {
+            System.err.println("Usage: AttendanceCompactor [attendance.txt]");
+            System.exit(1);
+        }
+        Path log = Paths.get(args.length == 1 ? args[0] : "data/attendance.txt");
+        FileTransaction.recover(log.toAbsolutePath().getParent());
+        DataLock compacting = AttendanceSegments.compactionLock(log);
+        if (!compacting.tryLock()) {
+            System.err.println(log + " is already being compacted");
+            System.exit(1);
+        }
+        try {
+            System.out.println(new AttendanceCompactor(log).prepare().swap());
+        } finally {
+            compacting.unlock();
+        }
+    }
+}
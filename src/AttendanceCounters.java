@@ -0,0 +1,365 @@
+package ui;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.zip.CRC32;
+
+// Attended/missed counters per (student, course) over the compacted segments of a log, kept in a small file
+// next to it (data/attendance_counters.txt for data/attendance.txt):
+//   segment generation|rows checksum
+//   student|course|attended|missed|last epoch day
+// Segments never change within a generation, so the file is written once per generation: by the compactor in
+// the same transaction as the new manifest, or by the first reader that finds it missing, damaged or left from
+// another generation. Appends never touch it; AttendanceIndex adds the log's lines on top.
+// Counting splits the segment files into byte ranges counted in parallel on a ForkJoinPool; a line belongs
+// to the range holding its first byte. Segment rows are one per key, so the ranges' counts just add up.
+public final class AttendanceCounters {
+    private static final long LEAF_BYTES = 8L << 20;
+    private static final int READ_BUFFER = 1 << 20;
+
+    private final long generation;
+    // "student|course" -> {attended, missed, last epoch day}
+    private final Map<String, int[]> counters;
+
+    public interface Visitor {
+        void visit(String student, String course, int attended, int missed, int lastDay);
+    }
+
+    // Receives each line scan() reads, without its line break; the bytes are only valid during the call
+    interface LineSink {
+        void line(byte[] buffer, int from, int to);
+    }
+
+    // Where parse() found a mark line's fields: the student runs from the line's start to studentEnd
+    static final class Mark {
+        int studentEnd;
+        int courseStart;
+        int courseEnd;
+        int day;
+        boolean present;
+        private byte[] key = new byte[256];
+
+        // "student|course" of the line parse() last accepted, which starts at from
+        String pair(byte[] line, int from) {
+            int studentLength = studentEnd - from;
+            int courseLength = courseEnd - courseStart;
+            int keyLength = studentLength + 1 + courseLength;
+            if (keyLength > key.length) key = new byte[keyLength * 2];
+            System.arraycopy(line, from, key, 0, studentLength);
+            key[studentLength] = '|';
+            System.arraycopy(line, courseStart, key, studentLength + 1, courseLength);
+            return new String(key, 0, keyLength, StandardCharsets.UTF_8);
+        }
+    }
+
+    // Tallies rows that are one per student|day|course, as segment rows are
+    static final class Builder {
+        private final Map<String, int[]> counters = new HashMap<>();
+
+        void add(AttendanceRecord record, int day) {
+            if (day == AttendanceColumns.NO_DAY) return;
+            int[] tally = counters.computeIfAbsent(AttendanceDedupIndex.key(record.getStudent(), record.getCourse()),
+                    k -> new int[]{0, 0, AttendanceColumns.NO_DAY});
+            tally[record.isPresent() ? 0 : 1]++;
+            if (day > tally[2]) tally[2] = day;
+        }
+
+        AttendanceCounters build(long generation) {
+            return new AttendanceCounters(generation, counters);
+        }
+    }
+
+    private AttendanceCounters(long generation, Map<String, int[]> counters) {
+        this.generation = generation;
+        this.counters = counters;
+    }
+
+    static Path fileFor(Path log) {
+        String name = log.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return log.resolveSibling((dot > 0 ? name.substring(0, dot) : name) + "_counters.txt");
+    }
+
+    // The counters of the segments, from the file when it belongs to their generation, else counted and saved
+    public static AttendanceCounters of(Path log, AttendanceSegments segments, ForkJoinPool pool) throws IOException {
+        Path file = fileFor(log);
+        AttendanceCounters loaded = load(file, segments.getGeneration());
+        if (loaded != null) return loaded;
+        AttendanceCounters counted = count(segments, pool);
+        try {
+            counted.save(file);
+        } catch (IOException e) {
+            // The counters are still right; the next process counts again
+            e.printStackTrace();
+        }
+        return counted;
+    }
+
+    // Reads every segment row; rows with an unreadable date are not marks and are not counted
+    public static AttendanceCounters count(AttendanceSegments segments, ForkJoinPool pool) throws IOException {
+        List<FileChannel> channels = new ArrayList<>();
+        try {
+            List<RangeTask> tasks = new ArrayList<>();
+            for (AttendanceSegments.Segment segment : segments.getSegments()) {
+                FileChannel channel = FileChannel.open(segment.getFile(), StandardOpenOption.READ);
+                channels.add(channel);
+                tasks.add(new RangeTask(channel, 0, channel.size()));
+            }
+            return new AttendanceCounters(segments.getGeneration(), pool.invoke(new FilesTask(tasks)));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            for (FileChannel channel : channels) {
+                channel.close();
+            }
+        }
+    }
+
+    public long getGeneration() {
+        return generation;
+    }
+
+    public int size() {
+        return counters.size();
+    }
+
+    public void forEach(Visitor visitor) {
+        for (Map.Entry<String, int[]> entry : counters.entrySet()) {
+            String pair = entry.getKey();
+            int split = pair.lastIndexOf('|');
+            int[] tally = entry.getValue();
+            visitor.visit(pair.substring(0, split), pair.substring(split + 1), tally[0], tally[1], tally[2]);
+        }
+    }
+
+    // The file's lines, sorted so the same counters always produce the same file
+    List<String> toLines() {
+        List<String> rows = new ArrayList<>(counters.size() + 1);
+        rows.add("");
+        CRC32 crc = new CRC32();
+        for (Map.Entry<String, int[]> entry : new TreeMap<>(counters).entrySet()) {
+            int[] tally = entry.getValue();
+            String line = entry.getKey() + "|" + tally[0] + "|" + tally[1] + "|" + tally[2];
+            crc.update((line + "\n").getBytes(StandardCharsets.UTF_8));
+            rows.add(line);
+        }
+        rows.set(0, generation + "|" + crc.getValue());
+        return rows;
+    }
+
+    private void save(Path file) throws IOException {
+        new FileTransaction().write(file, toLines()).commit();
+    }
+
+    private static final class FilesTask extends RecursiveTask<Map<String, int[]>> {
+        private final List<RangeTask> files;
+
+        FilesTask(List<RangeTask> files) {
+            this.files = files;
+        }
+
+        @Override
+        protected Map<String, int[]> compute() {
+            Map<String, int[]> counts = new HashMap<>();
+            for (RangeTask file : invokeAll(files)) {
+                counts = merge(counts, file.join());
+            }
+            return counts;
+        }
+    }
+
+    private static final class RangeTask extends RecursiveTask<Map<String, int[]>> {
+        private final FileChannel channel;
+        private final long start;
+        private final long end;
+
+        RangeTask(FileChannel channel, long start, long end) {
+            this.channel = channel;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected Map<String, int[]> compute() {
+            if (end - start > LEAF_BYTES) {
+                long middle = start + (end - start) / 2;
+                RangeTask left = new RangeTask(channel, start, middle);
+                left.fork();
+                Map<String, int[]> right = new RangeTask(channel, middle, end).compute();
+                return merge(left.join(), right);
+            }
+            Tally tally = new Tally();
+            try {
+                scan(channel, start, end, channel.size(), tally);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return tally.counts;
+        }
+    }
+
+    // Counts segment lines, which are one per key
+    private static final class Tally implements LineSink {
+        final Map<String, int[]> counts = new HashMap<>();
+        private final Mark mark = new Mark();
+
+        @Override
+        public void line(byte[] line, int from, int to) {
+            if (!parse(line, from, to, mark)) return;
+            int[] tally = counts.computeIfAbsent(mark.pair(line, from), k -> new int[]{0, 0, AttendanceColumns.NO_DAY});
+            tally[mark.present ? 0 : 1]++;
+            if (mark.day > tally[2]) tally[2] = mark.day;
+        }
+    }
+
+    private static Map<String, int[]> merge(Map<String, int[]> a, Map<String, int[]> b) {
+        Map<String, int[]> into = a.size() >= b.size() ? a : b;
+        Map<String, int[]> from = into == a ? b : a;
+        for (Map.Entry<String, int[]> entry : from.entrySet()) {
+            int[] tally = into.get(entry.getKey());
+            if (tally == null) {
+                into.put(entry.getKey(), entry.getValue());
+            } else {
+                tally[0] += entry.getValue()[0];
+                tally[1] += entry.getValue()[1];
+                tally[2] = Math.max(tally[2], entry.getValue()[2]);
+            }
+        }
+        return into;
+    }
+
+    // Passes the lines that start in [start, end) to the sink; the last one may run past end, but not past
+    // size, where the scan treats the file as ending
+    static void scan(FileChannel channel, long start, long end, long size, LineSink sink) throws IOException {
+        byte[] buffer = new byte[READ_BUFFER];
+        long position = start > 0 ? start - 1 : 0; // file offset of buffer[0]
+        int length = read(channel, buffer, 0, position, size);
+        int i = 0;
+
+        if (start > 0) {
+            // The byte before start tells whether a line begins at start; otherwise skip the partial line
+            while (true) {
+                while (i < length && buffer[i] != '\n') i++;
+                if (i < length) {
+                    i++;
+                    break;
+                }
+                position += length;
+                i = 0;
+                length = read(channel, buffer, 0, position, size);
+                if (length <= 0) return;
+            }
+        }
+
+        while (position + i < end) {
+            int j = i;
+            while (j < length && buffer[j] != '\n') j++;
+            if (j == length) {
+                if (position + length >= size) {
+                    line(buffer, i, j, sink); // last line without a newline
+                    return;
+                }
+                // Line continues past the buffer: move it to the front and read more
+                int rest = length - i;
+                if (rest == buffer.length) buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                System.arraycopy(buffer, i, buffer, 0, rest);
+                position += i;
+                i = 0;
+                int read = read(channel, buffer, rest, position + rest, size);
+                if (read <= 0) {
+                    line(buffer, 0, rest, sink); // the file ended early
+                    return;
+                }
+                length = rest + read;
+                continue;
+            }
+            line(buffer, i, j, sink);
+            i = j + 1;
+            if (i == length) {
+                position += length;
+                i = 0;
+                length = read(channel, buffer, 0, position, size);
+                if (length <= 0) return;
+            }
+        }
+    }
+
+    private static void line(byte[] buffer, int from, int to, LineSink sink) {
+        sink.line(buffer, from, to > from && buffer[to - 1] == '\r' ? to - 1 : to);
+    }
+
+    // Same rules as AttendanceRecord.parse: student|date|course|0 or 1, no fourth separator. False for lines
+    // that are not marks, including those with an unreadable date.
+    static boolean parse(byte[] line, int from, int to, Mark mark) {
+        int p1 = -1, p2 = -1, p3 = -1;
+        for (int k = from; k < to; k++) {
+            if (line[k] != '|') continue;
+            if (p1 < 0) {
+                p1 = k;
+            } else if (p2 < 0) {
+                p2 = k;
+            } else if (p3 < 0) {
+                p3 = k;
+            } else {
+                return false;
+            }
+        }
+        if (p3 < 0 || p1 == from || to - p3 != 2) return false;
+        byte flag = line[p3 + 1];
+        if (flag != '0' && flag != '1') return false;
+        int day = AttendanceRecord.epochDay(new String(line, p1 + 1, Math.min(p2 - p1 - 1, 10), StandardCharsets.UTF_8));
+        if (day == AttendanceColumns.NO_DAY) return false;
+        mark.studentEnd = p1;
+        mark.courseStart = p2 + 1;
+        mark.courseEnd = p3;
+        mark.day = day;
+        mark.present = flag == '1';
+        return true;
+    }
+
+    // Reads into buffer from offset on, stopping at size; -1 at or past size
+    private static int read(FileChannel channel, byte[] buffer, int offset, long position, long size)
+            throws IOException {
+        if (position >= size) return -1;
+        ByteBuffer target = ByteBuffer.wrap(buffer, offset, (int) Math.min(buffer.length - offset, size - position));
+        int total = 0;
+        while (target.hasRemaining()) {
+            int read = channel.read(target, position + total);
+            if (read < 0) break;
+            total += read;
+        }
+        return total == 0 ? -1 : total;
+    }
+
+    // The file's counters, or null if it is missing, does not verify or is for another generation
+    private static AttendanceCounters load(Path file, long generation) {
+        if (!Files.exists(file)) return null;
+        try {
+            List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+            if (lines.isEmpty()) return null;
+            String[] header = lines.get(0).split("\\|");
+            if (header.length != 2 || Long.parseLong(header[0]) != generation) return null;
+
+            CRC32 crc = new CRC32();
+            Map<String, int[]> loaded = new HashMap<>();
+            for (String line : lines.subList(1, lines.size())) {
+                crc.update((line + "\n").getBytes(StandardCharsets.UTF_8));
+                String[] parts = line.split("\\|");
+                if (parts.length != 5) return null;
+                loaded.put(AttendanceDedupIndex.key(parts[0], parts[1]), new int[]{Integer.parseInt(parts[2]),
+                        Integer.parseInt(parts[3]), Integer.parseInt(parts[4])});
+            }
+            if (crc.getValue() != Long.parseLong(header[1])) return null;
+            return new AttendanceCounters(generation, loaded);
+        } catch (IOException | NumberFormatException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package ui;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+// The latest mark of every student|day|course in attendance.txt and its compacted segments, partitioned by
+// class day and persisted under data/attendance_keys/ (one "yyyy-MM-dd.txt" file of "student|course|0/1"
+// lines per day, in log order, so a key's last line is its latest mark). offset.txt records the format, the
+// segment generation and how many bytes of the log have been indexed ("2|generation|offset"), so only
+// appended lines are read; an index in another format is rebuilt. Every process writing the log shares these files:
+// refresh() runs holding the log lock (AttendanceSegments.logLock) and starts from the offset on disk, so
+// lines another process indexed are not indexed twice and lines it appended are not missed. Each day has
+// its own lock, so marksFor() on different days runs in parallel and never waits for the log lock.
+public final class AttendanceDedupIndex {
+    private static final Path ATTENDANCE_FILE = Paths.get("data/attendance.txt");
+    private static final Path INDEX_DIR = Paths.get("data/attendance_keys");
+    private static final String OFFSET_FILE = "offset.txt";
+    private static final String FORMAT = "2";
+
+    private static AttendanceDedupIndex shared;
+
+    private final Path log;
+    private final Path dir;
+    private final DataLock logLock;
+    // Days looked up or indexed; replaced, not cleared, when they go stale
+    private volatile Map<LocalDate, Day> days = new ConcurrentHashMap<>();
+    private long generation;
+    private long offset;
+
+    // A day's partition file and the marks read from it, both guarded by the Day's lock
+    private static final class Day {
+        // "student|course" -> present, null until read
+        Map<String, Boolean> marks;
+    }
+
+    private AttendanceDedupIndex(Path log, Path dir) {
+        this.log = log;
+        this.dir = dir;
+        this.logLock = AttendanceSegments.logLock(log);
+    }
+
+    public static synchronized AttendanceDedupIndex shared() throws IOException {
+        if (shared == null) {
+            shared = open(ATTENDANCE_FILE, INDEX_DIR);
+        }
+        return shared;
+    }
+
+    public static AttendanceDedupIndex open(Path log, Path dir) throws IOException {
+        AttendanceDedupIndex index = new AttendanceDedupIndex(log, dir);
+        Files.createDirectories(dir);
+        index.refresh();
+        return index;
+    }
+
+    public static String key(String student, String course) {
+        return student + "|" + course;
+    }
+
+    // Indexes lines appended to the log since the offset on disk, rebuilding from the segments and the log if
+    // the log shrank or was compacted by another writer
+    public void refresh() throws IOException {
+        // The log lock comes first: the log's writer already holds it when it calls refresh()
+        logLock.lock();
+        try {
+            synchronized (this) {
+                update();
+            }
+        } finally {
+            logLock.unlock();
+        }
+    }
+
+    private void update() throws IOException {
+        readOffset();
+        long size = Files.exists(log) ? Files.size(log) : 0;
+        AttendanceSegments segments = AttendanceSegments.of(log);
+        Map<LocalDate, List<String>> added = new TreeMap<>();
+        Consumer<String> collect = line -> {
+            AttendanceRecord record = AttendanceRecord.parse(line);
+            if (record == null) return;
+            LocalDate day = record.getDay();
+            if (day == null) return;
+            added.computeIfAbsent(day, d -> new ArrayList<>())
+                    .add(key(record.getStudent(), record.getCourse()) + "|" + (record.isPresent() ? "1" : "0"));
+        };
+        if (offset < 0 || offset > size || generation != segments.getGeneration()) {
+            clear();
+            segments.scan(collect);
+            generation = segments.getGeneration();
+        }
+        if (offset == size && added.isEmpty()) return;
+
+        long newOffset = LogTail.readFrom(log, offset, collect);
+
+        for (Map.Entry<LocalDate, List<String>> entry : added.entrySet()) {
+            Day day = day(entry.getKey());
+            synchronized (day) {
+                try (BufferedWriter writer = Files.newBufferedWriter(partition(entry.getKey()),
+                        StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                    for (String mark : entry.getValue()) {
+                        if (day.marks != null) put(day.marks, mark);
+                        writer.write(mark);
+                        writer.newLine();
+                    }
+                }
+            }
+        }
+
+        offset = newOffset;
+        saveOffset();
+    }
+
+    // After the log's own writer compacted it: the marks are unchanged, only the log position moved.
+    // Every line of the old log must have been indexed first; the caller holds the log lock.
+    public synchronized void rebase(long generation, long offset) throws IOException {
+        this.generation = generation;
+        this.offset = offset;
+        saveOffset();
+    }
+
+    // Takes over what another process indexed since this one last looked; the days loaded from partitions
+    // it appended to are stale then
+    private void readOffset() throws IOException {
+        Path offsetFile = dir.resolve(OFFSET_FILE);
+        long savedGeneration = 0;
+        long savedOffset = 0;
+        if (Files.exists(offsetFile)) {
+            try {
+                String[] parts = Files.readString(offsetFile).trim().split("\\|");
+                if (parts.length == 3 && parts[0].equals(FORMAT)) {
+                    savedGeneration = Long.parseLong(parts[1]);
+                    savedOffset = Long.parseLong(parts[2]);
+                } else {
+                    // Written before partitions held the marks
+                    savedOffset = -1;
+                }
+            } catch (NumberFormatException e) {
+                savedOffset = -1;
+            }
+        }
+        if (savedGeneration != generation || savedOffset != offset) {
+            days = new ConcurrentHashMap<>();
+            generation = savedGeneration;
+            offset = savedOffset;
+        }
+    }
+
+    private void saveOffset() throws IOException {
+        Files.writeString(dir.resolve(OFFSET_FILE), FORMAT + "|" + generation + "|" + offset);
+    }
+
+    // The latest mark of everyone recorded for this day as of the last refresh(), "student|course" -> present;
+    // reads only that day's partition, holding only that day's lock. A caller that must not miss a line
+    // another process is appending holds the log lock and refreshes first, as the log's writer does.
+    public Map<String, Boolean> marksFor(LocalDate day) throws IOException {
+        Day loaded = day(day);
+        synchronized (loaded) {
+            if (loaded.marks == null) {
+                Map<String, Boolean> marks = new HashMap<>();
+                Path file = partition(day);
+                if (Files.exists(file)) {
+                    for (String mark : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                        put(marks, mark);
+                    }
+                }
+                loaded.marks = marks;
+            }
+            return new HashMap<>(loaded.marks);
+        }
+    }
+
+    private Day day(LocalDate day) {
+        return days.computeIfAbsent(day, d -> new Day());
+    }
+
+    private static void put(Map<String, Boolean> marks, String mark) {
+        int split = mark.lastIndexOf('|');
+        if (split > 0) marks.put(mark.substring(0, split), mark.endsWith("|1"));
+    }
+
+    private void clear() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*.txt")) {
+            for (Path file : files) {
+                Files.delete(file);
+            }
+        }
+        days = new ConcurrentHashMap<>();
+        offset = 0;
+    }
+
+    private Path partition(LocalDate day) {
+        return dir.resolve(day + ".txt");
+    }
+}
@@ -0,0 +1,176 @@
+package ui;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+// History queries on an attendance log: a course or a student over a date range, or one class day's roster.
+// Compacted rows come from the segments, which are sorted by course and day and entered through their sparse
+// indexes. Rows still in attendance.txt are found through a per-day index of line positions, extended as the
+// log grows and rebuilt after a compaction. A query reads only the rows of the days it asks for. The log lock
+// (AttendanceSegments.logLock) is held from checking the log's generation until its lines are read, so a
+// compaction cannot truncate the log under the stored positions.
+public final class AttendanceHistory {
+    private static final Path ATTENDANCE_FILE = Paths.get("data/attendance.txt");
+
+    // Day, then course, then student
+    static final Comparator<AttendanceRecord> ORDER = Comparator.comparingInt(AttendanceRecord::getEpochDay)
+            .thenComparing(AttendanceRecord::getCourse)
+            .thenComparing(AttendanceRecord::getStudent);
+
+    private static final Map<Path, AttendanceHistory> shared = new HashMap<>();
+
+    private final Path log;
+    private final DataLock logLock;
+    // epoch day -> positions of that day's lines in the log; lines with unreadable dates are not indexed
+    private final TreeMap<Integer, Lines> days = new TreeMap<>();
+    private long generation = -1;
+    private long offset;
+    private long tailChecksum;
+
+    // Start and length in bytes of each line, in log order
+    private static final class Lines {
+        long[] starts = new long[8];
+        int[] lengths = new int[8];
+        int size;
+
+        void add(long start, int length) {
+            if (size == starts.length) {
+                starts = Arrays.copyOf(starts, size * 2);
+                lengths = Arrays.copyOf(lengths, size * 2);
+            }
+            starts[size] = start;
+            lengths[size] = length;
+            size++;
+        }
+    }
+
+    private AttendanceHistory(Path log) {
+        this.log = log;
+        this.logLock = AttendanceSegments.logLock(log);
+    }
+
+    public static AttendanceHistory shared() {
+        return shared(ATTENDANCE_FILE);
+    }
+
+    public static synchronized AttendanceHistory shared(Path log) {
+        return shared.computeIfAbsent(log.toAbsolutePath().normalize(), AttendanceHistory::new);
+    }
+
+    // The course's rows from one day to another, inclusive, ordered by day and student
+    public List<AttendanceRecord> course(String course, LocalDate from, LocalDate to) throws IOException {
+        int first = (int) from.toEpochDay();
+        int last = (int) to.toEpochDay();
+        return query(first, last, record -> record.getCourse().equals(course),
+                (segments, rows) -> segments.scan(course, first, last, rows));
+    }
+
+    // The student's rows in every course from one day to another, inclusive, ordered by day and course
+    public List<AttendanceRecord> student(String student, LocalDate from, LocalDate to) throws IOException {
+        int first = (int) from.toEpochDay();
+        int last = (int) to.toEpochDay();
+        return query(first, last, record -> record.getStudent().equals(student), (segments, rows) -> {
+            for (String course : segments.getCourses()) {
+                segments.scan(course, first, last, record -> {
+                    if (record.getStudent().equals(student)) rows.accept(record);
+                });
+            }
+        });
+    }
+
+    // Everyone recorded for the course on that day
+    public List<AttendanceRecord> day(String course, LocalDate day) throws IOException {
+        return course(course, day, day);
+    }
+
+    private interface SegmentQuery {
+        void run(AttendanceSegments segments, Consumer<AttendanceRecord> rows) throws IOException;
+    }
+
+    // Segment rows first, then log rows, so a key recorded again in the log shows its latest value.
+    // Repeated if a compaction moved rows from the log into new segments in the meantime.
+    private List<AttendanceRecord> query(int first, int last, Predicate<AttendanceRecord> matches,
+                                         SegmentQuery segmentQuery) throws IOException {
+        while (true) {
+            AttendanceSegments segments = AttendanceSegments.of(log);
+            Map<String, AttendanceRecord> rows = new HashMap<>();
+            segmentQuery.run(segments, record -> rows.put(key(record), record));
+            if (!readLog(segments.getGeneration(), first, last, matches, rows)) continue;
+
+            List<AttendanceRecord> result = new ArrayList<>(rows.values());
+            result.sort(ORDER);
+            return result;
+        }
+    }
+
+    // False if the log no longer belongs to that segment generation
+    private boolean readLog(long segmentGeneration, int first, int last, Predicate<AttendanceRecord> matches,
+                            Map<String, AttendanceRecord> rows) throws IOException {
+        // The log lock comes first, as for the log's writer
+        logLock.lock();
+        try {
+            synchronized (this) {
+                return readLines(segmentGeneration, first, last, matches, rows);
+            }
+        } finally {
+            logLock.unlock();
+        }
+    }
+
+    private boolean readLines(long segmentGeneration, int first, int last, Predicate<AttendanceRecord> matches,
+                              Map<String, AttendanceRecord> rows) throws IOException {
+        sync();
+        if (generation != segmentGeneration) return false;
+        SortedMap<Integer, Lines> range = days.subMap(first, true, last, true);
+        if (range.isEmpty()) return true;
+
+        try (FileChannel channel = FileChannel.open(log, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(256);
+            for (Lines lines : range.values()) {
+                for (int i = 0; i < lines.size; i++) {
+                    if (lines.lengths[i] > buffer.capacity()) buffer = ByteBuffer.allocate(lines.lengths[i]);
+                    buffer.clear().limit(lines.lengths[i]);
+                    while (buffer.hasRemaining()) {
+                        if (channel.read(buffer, lines.starts[i] + buffer.position()) < 0) break;
+                    }
+                    int length = buffer.position();
+                    while (length > 0 && (buffer.get(length - 1) == '\n' || buffer.get(length - 1) == '\r')) length--;
+                    AttendanceRecord record = AttendanceRecord.parse(new String(buffer.array(), 0, length, StandardCharsets.UTF_8));
+                    if (record != null && matches.test(record)) rows.put(key(record), record);
+                }
+            }
+        }
+        return true;
+    }
+
+    // Indexes the lines appended since the last call; starts over after a compaction or a rewrite
+    private void sync() throws IOException {
+        long size = Files.exists(log) ? Files.size(log) : 0;
+        AttendanceSegments segments = AttendanceSegments.of(log);
+        if (segments.getGeneration() != generation || size < offset
+                || LogTail.checksumBefore(log, offset) != tailChecksum) {
+            days.clear();
+            offset = 0;
+            generation = segments.getGeneration();
+        }
+        if (size == offset) return;
+        offset = LogTail.readFrom(log, offset, Long.MAX_VALUE, (start, length, line) -> {
+            AttendanceRecord record = AttendanceRecord.parse(line);
+            if (record == null) return;
+            int day = record.getEpochDay();
+            if (day != AttendanceColumns.NO_DAY) days.computeIfAbsent(day, d -> new Lines()).add(start, length);
+        });
+        tailChecksum = LogTail.checksumBefore(log, offset);
+    }
+
+    private static String key(AttendanceRecord record) {
+        return record.getStudent() + "|" + record.getEpochDay() + "|" + record.getCourse();
+    }
+}
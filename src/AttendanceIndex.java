@@ -0,0 +1,348 @@
+package ui;
+
+import java.io.*;
+import java.nio.file.*;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+// Attended/missed counters per (student, course) over the compacted segments and attendance.txt, where a
+// student|day|course recorded more than once counts once, with its last write (see AttendanceStore).
+// The segments hold one row per key, so their counts come from the per-generation checkpoint in
+// AttendanceCounters. The log's lines since the last compaction are kept in AttendanceColumns, students and
+// courses dictionary-encoded, and each one replaces the earlier mark of its key, whether that is in the log
+// (a chain of the pair's rows) or in the segments (a point lookup, cached per course and day). A line for a
+// later day than any mark of its pair, the usual case, needs neither. The counters are flat int arrays
+// indexed by studentId * stride + courseId. Lines with an unreadable date are not marks and are skipped.
+public final class AttendanceIndex {
+    private static final Path ATTENDANCE_FILE = Paths.get("data/attendance.txt");
+
+    private static AttendanceIndex cached;
+
+    private final Path log;
+    private final AttendanceSegments segments;
+    private final AttendanceColumns columns = new AttendanceColumns();
+    // Per log row, the pair's row before it, -1 for none
+    private int[] previousRow = new int[1024];
+    // Course slots per student in the counter arrays, grown by doubling
+    private int stride = 8;
+    private int[] attended = new int[0];
+    private int[] missed = new int[0];
+    private int[] lastDay = new int[0];
+    // Per pair: the last day it has in the segments and its newest log row
+    private int[] segmentLastDay = new int[0];
+    private int[] lastRow = new int[0];
+    // Segment marks of one course and day, read on first use: courseId << 32 | day -> student -> present
+    private final Map<Long, Map<String, Boolean>> segmentMarks = new HashMap<>();
+    // Bytes of the log folded into the counters, and a checksum of the bytes just before that offset
+    private long offset;
+    private long tailChecksum;
+    // Size and modification time of the log at the last check; unchanged means nothing to read
+    private long checkedSize = -1;
+    private long checkedModified;
+    // Told the new counts of each pair a line changes, while advance() runs
+    private AttendanceCounters.Visitor listener;
+
+    public static final class Counts {
+        static final Counts EMPTY = new Counts();
+
+        private final int attended;
+        private final int missed;
+        private final LocalDate lastDate;
+
+        private Counts() {
+            this(0, 0, null);
+        }
+
+        Counts(int attended, int missed, LocalDate lastDate) {
+            this.attended = attended;
+            this.missed = missed;
+            this.lastDate = lastDate;
+        }
+
+        public int getAttended() {
+            return attended;
+        }
+
+        public int getMissed() {
+            return missed;
+        }
+
+        public int getRecorded() {
+            return attended + missed;
+        }
+
+        // Most recent class date seen for this pair, null if none
+        public LocalDate getLastDate() {
+            return lastDate;
+        }
+    }
+
+    // An immutable copy of the counters, for readers that must not wait on the index while it catches up
+    public static final class Snapshot {
+        // "student|course" -> counts, pairs with at least one mark
+        private final Map<String, Counts> counts;
+
+        private Snapshot(Map<String, Counts> counts) {
+            this.counts = counts;
+        }
+
+        public Counts get(String student, String course) {
+            return counts.getOrDefault(AttendanceDedupIndex.key(student, course), Counts.EMPTY);
+        }
+    }
+
+    private AttendanceIndex(Path log, AttendanceSegments segments) {
+        this.log = log;
+        this.segments = segments;
+    }
+
+    // Returns the shared index for data/attendance.txt. Appended lines are read from the last known
+    // offset; a new index is built when the log was compacted, shrank or was rewritten before that offset.
+    public static synchronized AttendanceIndex current() {
+        try {
+            boolean exists = Files.exists(ATTENDANCE_FILE);
+            long size = exists ? Files.size(ATTENDANCE_FILE) : 0;
+            long modified = exists ? Files.getLastModifiedTime(ATTENDANCE_FILE).toMillis() : 0;
+            AttendanceSegments segments = AttendanceSegments.of(ATTENDANCE_FILE);
+            if (cached != null && size == cached.checkedSize && modified == cached.checkedModified
+                    && segments.getGeneration() == cached.segments.getGeneration()) {
+                return cached;
+            }
+            if (cached == null || segments.getGeneration() != cached.segments.getGeneration() || size < cached.offset
+                    || LogTail.checksumBefore(ATTENDANCE_FILE, cached.offset) != cached.tailChecksum) {
+                cached = build(ATTENDANCE_FILE);
+            } else if (size > cached.offset) {
+                cached.catchUp();
+            }
+            cached.checkedSize = size;
+            cached.checkedModified = modified;
+        } catch (IOException e) {
+            e.printStackTrace();
+            if (cached == null) cached = new AttendanceIndex(ATTENDANCE_FILE, null);
+        }
+        return cached;
+    }
+
+    // A new index of a log: the segment counters from their checkpoint, then every line of the log
+    public static AttendanceIndex build(Path log) throws IOException {
+        return build(log, ForkJoinPool.commonPool());
+    }
+
+    // Same, counting the segments on the pool if their checkpoint has to be rebuilt
+    public static AttendanceIndex build(Path log, ForkJoinPool pool) throws IOException {
+        while (true) {
+            AttendanceSegments segments = AttendanceSegments.of(log);
+            AttendanceIndex index = new AttendanceIndex(log, segments);
+            AttendanceCounters.of(log, segments, pool).forEach(index::addSegmentCounts);
+            index.catchUp();
+            // A compaction that swapped the log meanwhile leaves a log that does not continue these segments
+            if (AttendanceSegments.of(log).getGeneration() == segments.getGeneration()) return index;
+        }
+    }
+
+    // An index of the segments alone, for a reader that follows the log itself with advance()
+    static AttendanceIndex open(Path log, AttendanceSegments segments) throws IOException {
+        AttendanceIndex index = new AttendanceIndex(log, segments);
+        AttendanceCounters.of(log, segments, ForkJoinPool.commonPool()).forEach(index::addSegmentCounts);
+        return index;
+    }
+
+    // An empty index with no segments, fed record by record with add(); see BinaryAttendanceStore
+    static AttendanceIndex empty(Path log) {
+        return new AttendanceIndex(log, null);
+    }
+
+    private void catchUp() throws IOException {
+        advance(Long.MAX_VALUE, null);
+    }
+
+    // Adds the log's lines up to limit, a line boundary; the listener, if any, gets the pairs they change
+    synchronized void advance(long limit, AttendanceCounters.Visitor listener) throws IOException {
+        this.listener = listener;
+        try {
+            offset = LogTail.readFrom(log, offset, limit, this::addLine);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            this.listener = null;
+        }
+        tailChecksum = LogTail.checksumBefore(log, offset);
+    }
+
+    synchronized long getOffset() {
+        return offset;
+    }
+
+    long getGeneration() {
+        return segments == null ? -1 : segments.getGeneration();
+    }
+
+    private void addSegmentCounts(String student, String course, int attendedCount, int missedCount, int day) {
+        int slot = slot(columns.getStudents().intern(student), columns.getCourses().intern(course));
+        attended[slot] = attendedCount;
+        missed[slot] = missedCount;
+        segmentLastDay[slot] = day;
+        lastDay[slot] = day;
+    }
+
+    private void addLine(String line) {
+        AttendanceRecord record = AttendanceRecord.parse(line);
+        if (record == null) return;
+        try {
+            add(record);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    synchronized void addRecord(AttendanceRecord record) throws IOException {
+        add(record);
+    }
+
+    private void add(AttendanceRecord record) throws IOException {
+        int day = record.getEpochDay();
+        if (day == AttendanceColumns.NO_DAY) return;
+        boolean present = record.isPresent();
+        int row = columns.add(record.getStudent(), record.getCourse(), day, present);
+        int courseId = columns.getCourse(row);
+        int slot = slot(columns.getStudent(row), courseId);
+
+        // Only a day the pair already has can hold an earlier mark
+        Boolean previous = day > lastDay[slot] ? null : previousMark(slot, courseId, record.getStudent(), day);
+        if (row == previousRow.length) previousRow = Arrays.copyOf(previousRow, row * 2);
+        previousRow[row] = lastRow[slot];
+        lastRow[slot] = row;
+
+        if (previous != null) {
+            if (previous == present) return;
+            if (previous) {
+                attended[slot]--;
+            } else {
+                missed[slot]--;
+            }
+        }
+        if (present) {
+            attended[slot]++;
+        } else {
+            missed[slot]++;
+        }
+        if (day > lastDay[slot]) lastDay[slot] = day;
+        if (listener != null) {
+            listener.visit(record.getStudent(), record.getCourse(), attended[slot], missed[slot], lastDay[slot]);
+        }
+    }
+
+    // The pair's latest mark for the day before this line: its newest log row for the day, else the segments'
+    private Boolean previousMark(int slot, int courseId, String student, int day) throws IOException {
+        for (int row = lastRow[slot]; row >= 0; row = previousRow[row]) {
+            if (columns.getEpochDay(row) == day) return columns.isPresent(row);
+        }
+        if (segments == null || day > segmentLastDay[slot]) return null;
+        long key = ((long) courseId << 32) | (day & 0xFFFFFFFFL);
+        Map<String, Boolean> marks = segmentMarks.get(key);
+        if (marks == null) {
+            Map<String, Boolean> read = new HashMap<>();
+            segments.scan(columns.getCourses().name(courseId), day, day,
+                    record -> read.put(record.getStudent(), record.isPresent()));
+            marks = read;
+            segmentMarks.put(key, marks);
+        }
+        return marks.get(student);
+    }
+
+    private int slot(int studentId, int courseId) {
+        if (courseId >= stride || (studentId + 1) * stride > attended.length) {
+            grow(studentId, courseId);
+        }
+        return studentId * stride + courseId;
+    }
+
+    private void grow(int studentId, int courseId) {
+        int newStride = stride;
+        while (courseId >= newStride) newStride *= 2;
+        int students = Math.max(16, attended.length / stride);
+        while (studentId >= students) students *= 2;
+
+        int[] newAttended = new int[students * newStride];
+        int[] newMissed = new int[students * newStride];
+        int[] newLastDay = new int[students * newStride];
+        int[] newSegmentLastDay = new int[students * newStride];
+        int[] newLastRow = new int[students * newStride];
+        Arrays.fill(newLastDay, AttendanceColumns.NO_DAY);
+        Arrays.fill(newSegmentLastDay, AttendanceColumns.NO_DAY);
+        Arrays.fill(newLastRow, -1);
+        for (int s = 0; s < attended.length / stride; s++) {
+            System.arraycopy(attended, s * stride, newAttended, s * newStride, stride);
+            System.arraycopy(missed, s * stride, newMissed, s * newStride, stride);
+            System.arraycopy(lastDay, s * stride, newLastDay, s * newStride, stride);
+            System.arraycopy(segmentLastDay, s * stride, newSegmentLastDay, s * newStride, stride);
+            System.arraycopy(lastRow, s * stride, newLastRow, s * newStride, stride);
+        }
+        attended = newAttended;
+        missed = newMissed;
+        lastDay = newLastDay;
+        segmentLastDay = newSegmentLastDay;
+        lastRow = newLastRow;
+        stride = newStride;
+    }
+
+    // Snapshot of the counters; the shared index keeps growing as attendance is appended
+    public synchronized Counts get(String student, String course) {
+        int studentId = columns.getStudents().find(student);
+        int courseId = columns.getCourses().find(course);
+        if (studentId < 0 || courseId < 0) return Counts.EMPTY;
+        int slot = studentId * stride + courseId;
+        if (attended[slot] + missed[slot] == 0) return Counts.EMPTY;
+        return new Counts(attended[slot], missed[slot],
+                lastDay[slot] == AttendanceColumns.NO_DAY ? null : LocalDate.ofEpochDay(lastDay[slot]));
+    }
+
+    // The student's latest mark for the course on that day, null if there is none
+    synchronized Boolean mark(String student, String course, int day) throws IOException {
+        int studentId = columns.getStudents().find(student);
+        int courseId = columns.getCourses().find(course);
+        if (studentId < 0 || courseId < 0) return null;
+        int slot = studentId * stride + courseId;
+        if (day > lastDay[slot]) return null;
+        return previousMark(slot, courseId, student, day);
+    }
+
+    // Visits every (student, course) with at least one mark
+    public synchronized void forEach(AttendanceCounters.Visitor visitor) {
+        SymbolTable students = columns.getStudents();
+        SymbolTable courses = columns.getCourses();
+        for (int studentId = 0; studentId < students.size(); studentId++) {
+            for (int courseId = 0; courseId < courses.size(); courseId++) {
+                int slot = studentId * stride + courseId;
+                if (attended[slot] + missed[slot] == 0) continue;
+                visitor.visit(students.name(studentId), courses.name(courseId), attended[slot], missed[slot],
+                        lastDay[slot]);
+            }
+        }
+    }
+
+    public synchronized Snapshot snapshot() {
+        Map<String, Counts> counts = new HashMap<>();
+        forEach((student, course, attendedCount, missedCount, day) -> counts.put(AttendanceDedupIndex.key(student, course),
+                new Counts(attendedCount, missedCount, day == AttendanceColumns.NO_DAY ? null : LocalDate.ofEpochDay(day))));
+        return new Snapshot(counts);
+    }
+
+    // Log lines held since the last compaction
+    public synchronized int size() {
+        return columns.size();
+    }
+
+    public int getAttended(String student, String course) {
+        return get(student, course).getAttended();
+    }
+
+    public int getMissed(String student, String course) {
+        return get(student, course).getMissed();
+    }
+
+    public LocalDate getLastDate(String student, String course) {
+        return get(student, course).getLastDate();
+    }
+}
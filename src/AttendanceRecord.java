@@ -0,0 +1,104 @@
+package ui;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+
+public final class AttendanceRecord {
+    private final String student;
+    private final String date;
+    private final String course;
+    private final boolean present;
+
+    public AttendanceRecord(String student, String date, String course, boolean present) {
+        this.student = student;
+        this.date = date;
+        this.course = course;
+        this.present = present;
+    }
+
+    // Parses one "student|date|course|0/1" line, returns null for blank or malformed lines
+    public static AttendanceRecord parse(String line) {
+        int p1 = line.indexOf('|');
+        if (p1 <= 0) return null;
+        int p2 = line.indexOf('|', p1 + 1);
+        if (p2 < 0) return null;
+        int p3 = line.indexOf('|', p2 + 1);
+        if (p3 < 0 || line.indexOf('|', p3 + 1) >= 0) return null;
+
+        String flag = line.substring(p3 + 1);
+        boolean present;
+        if (flag.equals("1")) {
+            present = true;
+        } else if (flag.equals("0")) {
+            present = false;
+        } else {
+            return null;
+        }
+        return new AttendanceRecord(line.substring(0, p1), line.substring(p1 + 1, p2), line.substring(p2 + 1, p3), present);
+    }
+
+    public String getStudent() {
+        return student;
+    }
+
+    // Raw date field as written, e.g. "2025-04-22" or "2025-04-22 (Tuesday)"
+    public String getDate() {
+        return date;
+    }
+
+    public String getCourse() {
+        return course;
+    }
+
+    public boolean isPresent() {
+        return present;
+    }
+
+    public LocalDate getDay() {
+        return parseDay(date);
+    }
+
+    // Day as an epoch-day int without going through the date parser, AttendanceColumns.NO_DAY if malformed
+    public int getEpochDay() {
+        return epochDay(date);
+    }
+
+    // Same for a raw date field
+    static int epochDay(String date) {
+        if (date.length() < 10 || date.charAt(4) != '-' || date.charAt(7) != '-') return AttendanceColumns.NO_DAY;
+        int year = digits(date, 0, 4);
+        int month = digits(date, 5, 7);
+        int day = digits(date, 8, 10);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > 31) return AttendanceColumns.NO_DAY;
+        if (day > 28 && day > YearMonth.of(year, month).lengthOfMonth()) return AttendanceColumns.NO_DAY;
+        return (int) LocalDate.of(year, month, day).toEpochDay();
+    }
+
+    private static int digits(String date, int from, int to) {
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            char c = date.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    public String key() {
+        return student + "|" + date + "|" + course;
+    }
+
+    public String toLine() {
+        return key() + "|" + (present ? "1" : "0");
+    }
+
+    static LocalDate parseDay(String date) {
+        if (date.length() < 10) return null;
+        try {
+            return LocalDate.parse(date.substring(0, 10));
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+}
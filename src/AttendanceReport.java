@@ -0,0 +1,261 @@
+package ui;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+// Institution-wide report: one CSV row per (student, course) with the same figures as the Attendance card,
+// where a student|day|course recorded more than once counts once, with its last write.
+// attendance.txt is split into byte ranges counted in parallel on the ForkJoinPool; a line belongs to the
+// range holding its first byte. Each range keeps every pair's marks in log order, and ranges are merged in
+// file order, so the last line of a student|day|course wins however the log was split. The compacted
+// segments come from their per-generation checkpoint, also counted in parallel when it is missing (see
+// AttendanceCounters); a log mark for a day the segments already hold replaces the segment's mark. The
+// counters are joined with the class totals (class_totals.txt, else the timetable) and the CSV is written
+// row by row.
+// Usage: AttendanceReport <out.csv | -> [attendance.txt] [threads]
+public final class AttendanceReport {
+    private static final Path ATTENDANCE_FILE = Paths.get("data/attendance.txt");
+    private static final long LEAF_BYTES = 8L << 20;
+
+    // One pair's marks from a stretch of the log, in log order. A mark for the same day as the one before it
+    // replaces it on the spot; a day that comes back later is resolved when the ranges are applied.
+    private static final class Marks {
+        int[] days = new int[4];
+        boolean[] present = new boolean[4];
+        int size;
+        // Whether every day is later than the one before, so no day appears twice
+        boolean increasing = true;
+
+        void add(int day, boolean mark) {
+            if (size > 0 && days[size - 1] == day) {
+                present[size - 1] = mark;
+                return;
+            }
+            if (size > 0 && day < days[size - 1]) increasing = false;
+            if (size == days.length) {
+                days = Arrays.copyOf(days, size * 2);
+                present = Arrays.copyOf(present, size * 2);
+            }
+            days[size] = day;
+            present[size] = mark;
+            size++;
+        }
+
+        // Marks from later in the log
+        void addAll(Marks later) {
+            for (int i = 0; i < later.size; i++) {
+                add(later.days[i], later.present[i]);
+            }
+        }
+    }
+
+    private AttendanceReport() {
+    }
+
+    // "student|course" -> {attended, missed, last day in the segments}
+    public static Map<String, int[]> count(Path log, ForkJoinPool pool) throws IOException {
+        while (true) {
+            AttendanceSegments segments = AttendanceSegments.of(log);
+            Map<String, int[]> counts = new ConcurrentHashMap<>();
+            AttendanceCounters.of(log, segments, pool).forEach((student, course, attended, missed, lastDay) ->
+                    counts.put(AttendanceDedupIndex.key(student, course), new int[]{attended, missed, lastDay}));
+            Map<String, Marks> logMarks = countLog(log, pool);
+            // A compaction that swapped the log meanwhile leaves a log that does not continue these segments
+            if (AttendanceSegments.of(log).getGeneration() != segments.getGeneration()) continue;
+
+            Map<String, Map<String, Boolean>> segmentMarks = new ConcurrentHashMap<>();
+            try {
+                pool.invoke(ForkJoinTask.adapt(() -> logMarks.entrySet().parallelStream().forEach(entry ->
+                        apply(entry.getKey(), entry.getValue(), counts, segments, segmentMarks))));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            return counts;
+        }
+    }
+
+    // Every pair's marks in the log's complete lines, counted in byte ranges on the pool
+    private static Map<String, Marks> countLog(Path log, ForkJoinPool pool) throws IOException {
+        if (!Files.exists(log)) return Collections.emptyMap();
+        try (FileChannel channel = FileChannel.open(log, StandardOpenOption.READ)) {
+            long end = completeLines(channel);
+            return pool.invoke(new LogTask(channel, 0, end, end));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    // Folds a pair's log marks into its counters: each day's last mark counts, replacing a segment mark
+    private static void apply(String pair, Marks marks, Map<String, int[]> counts, AttendanceSegments segments,
+                              Map<String, Map<String, Boolean>> segmentMarks) {
+        int split = pair.lastIndexOf('|');
+        String student = pair.substring(0, split);
+        String course = pair.substring(split + 1);
+        int[] tally = counts.computeIfAbsent(pair, k -> new int[]{0, 0, AttendanceColumns.NO_DAY});
+        Map<Integer, Boolean> latest = new LinkedHashMap<>();
+        if (!marks.increasing) {
+            for (int i = 0; i < marks.size; i++) {
+                latest.put(marks.days[i], marks.present[i]);
+            }
+        }
+        int days = marks.increasing ? marks.size : latest.size();
+        Iterator<Map.Entry<Integer, Boolean>> unordered = latest.entrySet().iterator();
+        for (int i = 0; i < days; i++) {
+            int day;
+            boolean present;
+            if (marks.increasing) {
+                day = marks.days[i];
+                present = marks.present[i];
+            } else {
+                Map.Entry<Integer, Boolean> entry = unordered.next();
+                day = entry.getKey();
+                present = entry.getValue();
+            }
+            // Only a day the segments reach can hold an earlier mark there
+            if (day <= tally[2]) {
+                Boolean earlier = segmentMarks.computeIfAbsent(course + "|" + day, k -> {
+                    Map<String, Boolean> read = new HashMap<>();
+                    try {
+                        segments.scan(course, day, day, record -> read.put(record.getStudent(), record.isPresent()));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    return read;
+                }).get(student);
+                if (earlier != null) tally[earlier ? 0 : 1]--;
+            }
+            tally[present ? 0 : 1]++;
+        }
+    }
+
+    // Offset just past the log's last line break, so a line still being appended is left out
+    private static long completeLines(FileChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        long end = channel.size();
+        while (end > 0) {
+            long from = Math.max(0, end - buffer.capacity());
+            buffer.clear().limit((int) (end - from));
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, from + buffer.position()) < 0) break;
+            }
+            for (int i = buffer.position() - 1; i >= 0; i--) {
+                if (buffer.get(i) == '\n') return from + i + 1;
+            }
+            end = from;
+        }
+        return 0;
+    }
+
+    private static final class LogTask extends RecursiveTask<Map<String, Marks>> {
+        private final FileChannel channel;
+        private final long start;
+        private final long end;
+        private final long size;
+
+        LogTask(FileChannel channel, long start, long end, long size) {
+            this.channel = channel;
+            this.start = start;
+            this.end = end;
+            this.size = size;
+        }
+
+        @Override
+        protected Map<String, Marks> compute() {
+            if (end - start > LEAF_BYTES) {
+                long middle = start + (end - start) / 2;
+                LogTask left = new LogTask(channel, start, middle, size);
+                left.fork();
+                Map<String, Marks> right = new LogTask(channel, middle, end, size).compute();
+                Map<String, Marks> earlier = left.join();
+                for (Map.Entry<String, Marks> entry : right.entrySet()) {
+                    Marks marks = earlier.get(entry.getKey());
+                    if (marks == null) {
+                        earlier.put(entry.getKey(), entry.getValue());
+                    } else {
+                        marks.addAll(entry.getValue());
+                    }
+                }
+                return earlier;
+            }
+            Map<String, Marks> marks = new HashMap<>();
+            AttendanceCounters.Mark mark = new AttendanceCounters.Mark();
+            try {
+                AttendanceCounters.scan(channel, start, end, size, (line, from, to) -> {
+                    if (AttendanceCounters.parse(line, from, to, mark)) {
+                        marks.computeIfAbsent(mark.pair(line, from), k -> new Marks()).add(mark.day, mark.present);
+                    }
+                });
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return marks;
+        }
+    }
+
+    public static long write(Path log, Writer out, ForkJoinPool pool) throws IOException {
+        Map<String, int[]> counts = count(log, pool);
+        AttendanceSummary summary = AttendanceSummary.shared();
+
+        // Enrolled pairs are listed even without any attendance yet
+        SortedSet<String> pairs = new TreeSet<>(counts.keySet());
+        for (String student : summary.getStudents()) {
+            for (String course : summary.coursesOf(student)) {
+                pairs.add(AttendanceDedupIndex.key(student, course));
+            }
+        }
+
+        Map<String, Integer> totals = new HashMap<>();
+        BufferedWriter writer = new BufferedWriter(out, 1 << 16);
+        writer.write("student,course,course_name,total,attended,missed,percentage");
+        writer.newLine();
+        long rows = 0;
+        for (String pair : pairs) {
+            int split = pair.lastIndexOf('|');
+            String student = pair.substring(0, split);
+            String course = pair.substring(split + 1);
+            int[] tally = counts.getOrDefault(pair, new int[2]);
+            int total = totals.computeIfAbsent(course, summary::total);
+            AttendanceSummary.Row row = new AttendanceSummary.Row(course, total, tally[0], tally[1]);
+
+            writer.write(csv(student) + "," + csv(course) + "," + csv(row.getCourseName()) + "," + total + ","
+                    + row.getAttended() + "," + row.getMissed() + "," + row.getPercentage());
+            writer.newLine();
+            rows++;
+        }
+        writer.flush();
+        return rows;
+    }
+
+    private static String csv(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) return value;
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1 || args.length > 3) {
+            System.err.println("Usage: AttendanceReport <out.csv | -> [attendance.txt] [threads]");
+            System.exit(1);
+        }
+        Path log = args.length >= 2 ? Paths.get(args[1]) : ATTENDANCE_FILE;
+        ForkJoinPool pool = args.length == 3 ? new ForkJoinPool(Integer.parseInt(args[2])) : ForkJoinPool.commonPool();
+
+        long start = System.nanoTime();
+        long rows;
+        if (args[0].equals("-")) {
+            rows = write(log, new OutputStreamWriter(System.out, StandardCharsets.UTF_8), pool);
+        } else {
+            try (Writer out = Files.newBufferedWriter(Paths.get(args[0]), StandardCharsets.UTF_8)) {
+                rows = write(log, out, pool);
+            }
+        }
+        System.err.printf("%d rows in %.1f ms%n", rows, (System.nanoTime() - start) / 1e6);
+    }
+}
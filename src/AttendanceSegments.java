@@ -0,0 +1,268 @@
+package ui;
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.function.Consumer;
+
+// Immutable sorted segments that AttendanceCompactor moves an attendance log into. For data/attendance.txt
+// the manifest is data/attendance_segments.txt and the segments live in data/attendance_segments/.
+// Manifest: the generation on the first line, then "file|rows|first course|first day|last course|last day"
+// per segment, in key order. Segment lines keep the log's "student|date|course|0/1" format, one per
+// student|date|course, sorted by (course, day, student). Each segment's .idx file lists "course|day|byte offset"
+// for every INDEX_INTERVAL-th line and the first line of each course, so a course or date range is read from
+// close to where it starts. The .idx files are parsed once per segment, on first use, and kept with this
+// generation's Segment objects, so queries only binary-search them.
+// The log itself only holds what was appended since the last compaction; generation 0 means no segments.
+public final class AttendanceSegments {
+    static final int INDEX_INTERVAL = 128;
+
+    private static final Map<Path, AttendanceSegments> cached = new HashMap<>();
+
+    private final long generation;
+    private final List<Segment> segments;
+    private final String stamp;
+    private Set<String> courses;
+
+    public static final class Segment {
+        private final Path file;
+        private final int rows;
+        private final String firstCourse;
+        private final int firstDay;
+        private final String lastCourse;
+        private final int lastDay;
+        // The parsed .idx file, read on first use
+        private SparseIndex index;
+
+        Segment(Path file, int rows, String firstCourse, int firstDay, String lastCourse, int lastDay) {
+            this.file = file;
+            this.rows = rows;
+            this.firstCourse = firstCourse;
+            this.firstDay = firstDay;
+            this.lastCourse = lastCourse;
+            this.lastDay = lastDay;
+        }
+
+        public Path getFile() {
+            return file;
+        }
+
+        public Path getIndexFile() {
+            return indexFileFor(file);
+        }
+
+        public int getRows() {
+            return rows;
+        }
+
+        String toLine() {
+            return file.getFileName() + "|" + rows + "|" + firstCourse + "|" + firstDay + "|" + lastCourse + "|" + lastDay;
+        }
+
+        // Whether any of the course's rows between the two days (inclusive) can be in this segment
+        boolean overlaps(String course, int fromDay, int toDay) {
+            return compare(course, toDay, firstCourse, firstDay) >= 0 && compare(course, fromDay, lastCourse, lastDay) <= 0;
+        }
+
+        synchronized SparseIndex index() throws IOException {
+            if (index == null) index = SparseIndex.read(getIndexFile());
+            return index;
+        }
+    }
+
+    // A segment's .idx entries, in key order; empty if the file is missing
+    static final class SparseIndex {
+        private final String[] courses;
+        private final int[] days;
+        private final long[] offsets;
+
+        private SparseIndex(String[] courses, int[] days, long[] offsets) {
+            this.courses = courses;
+            this.days = days;
+            this.offsets = offsets;
+        }
+
+        static SparseIndex read(Path file) throws IOException {
+            List<String> lines = Files.exists(file) ? Files.readAllLines(file, StandardCharsets.UTF_8)
+                    : Collections.emptyList();
+            String[] courses = new String[lines.size()];
+            int[] days = new int[lines.size()];
+            long[] offsets = new long[lines.size()];
+            int size = 0;
+            for (String line : lines) {
+                String[] parts = line.split("\\|");
+                if (parts.length != 3) continue;
+                try {
+                    days[size] = Integer.parseInt(parts[1]);
+                    offsets[size] = Long.parseLong(parts[2]);
+                } catch (NumberFormatException e) {
+                    continue;
+                }
+                courses[size++] = parts[0].intern();
+            }
+            return new SparseIndex(Arrays.copyOf(courses, size), Arrays.copyOf(days, size), Arrays.copyOf(offsets, size));
+        }
+
+        // Byte offset of the last entry that sorts before (course, day), 0 if none does
+        long seek(String course, int day) {
+            int low = 0;
+            int high = courses.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (compare(courses[middle], days[middle], course, day) < 0) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low == 0 ? 0 : offsets[low - 1];
+        }
+    }
+
+    private AttendanceSegments(long generation, List<Segment> segments, String stamp) {
+        this.generation = generation;
+        this.segments = segments;
+        this.stamp = stamp;
+    }
+
+    // The current segments of a log; the manifest is re-read only when it changed
+    public static synchronized AttendanceSegments of(Path log) throws IOException {
+        Path manifest = manifestFor(log);
+        String stamp = DataFiles.stamp(manifest);
+        Path key = log.toAbsolutePath().normalize();
+        AttendanceSegments segments = cached.get(key);
+        if (segments == null || !segments.stamp.equals(stamp)) {
+            segments = load(log, manifest, stamp);
+            cached.put(key, segments);
+        }
+        return segments;
+    }
+
+    public long getGeneration() {
+        return generation;
+    }
+
+    public List<Segment> getSegments() {
+        return segments;
+    }
+
+    public long getRows() {
+        long rows = 0;
+        for (Segment segment : segments) {
+            rows += segment.rows;
+        }
+        return rows;
+    }
+
+    // Courses with rows in any segment, from the .idx files
+    public synchronized Set<String> getCourses() throws IOException {
+        if (courses == null) {
+            Set<String> found = new TreeSet<>();
+            for (Segment segment : segments) {
+                found.addAll(Arrays.asList(segment.index().courses));
+            }
+            courses = Collections.unmodifiableSet(found);
+        }
+        return courses;
+    }
+
+    // Every segment line, in key order
+    public void scan(Consumer<String> consumer) throws IOException {
+        for (Segment segment : segments) {
+            try (BufferedReader reader = Files.newBufferedReader(segment.file, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    consumer.accept(line);
+                }
+            }
+        }
+    }
+
+    // The course's rows from fromDay to toDay inclusive, in day order; only overlapping segments are opened,
+    // each from the last indexed line before the range
+    public void scan(String course, int fromDay, int toDay, Consumer<AttendanceRecord> consumer) throws IOException {
+        for (Segment segment : segments) {
+            if (!segment.overlaps(course, fromDay, toDay)) continue;
+            try (FileChannel channel = FileChannel.open(segment.file, StandardOpenOption.READ)) {
+                channel.position(segment.index().seek(course, fromDay));
+                BufferedReader reader = new BufferedReader(new InputStreamReader(Channels.newInputStream(channel),
+                        StandardCharsets.UTF_8));
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    AttendanceRecord record = AttendanceRecord.parse(line);
+                    if (record == null) continue;
+                    int day = record.getEpochDay();
+                    if (compare(record.getCourse(), day, course, fromDay) < 0) continue;
+                    if (compare(record.getCourse(), day, course, toDay) > 0) break;
+                    consumer.accept(record);
+                }
+            }
+        }
+    }
+
+    // Segment order: course, then day (unreadable dates, AttendanceColumns.NO_DAY, first)
+    static int compare(String courseA, int dayA, String courseB, int dayB) {
+        int order = courseA.compareTo(courseB);
+        return order != 0 ? order : Integer.compare(dayA, dayB);
+    }
+
+    // Full key order; rows with unreadable dates are told apart by the date text
+    static int compare(AttendanceRecord a, int dayA, AttendanceRecord b, int dayB) {
+        int order = compare(a.getCourse(), dayA, b.getCourse(), dayB);
+        if (order == 0 && dayA == AttendanceColumns.NO_DAY) order = a.getDate().compareTo(b.getDate());
+        return order != 0 ? order : a.getStudent().compareTo(b.getStudent());
+    }
+
+    static Path manifestFor(Path log) {
+        return log.resolveSibling(baseName(log) + "_segments.txt");
+    }
+
+    static Path directoryFor(Path log) {
+        return log.resolveSibling(baseName(log) + "_segments");
+    }
+
+    // Held, in whatever process, while rows are appended to the log or a new generation replaces it
+    static DataLock logLock(Path log) {
+        return DataLock.of(log.resolveSibling("." + baseName(log) + ".lock"));
+    }
+
+    // Held by the one process compacting the log, from AttendanceCompactor.prepare() until swap()
+    static DataLock compactionLock(Path log) {
+        return DataLock.of(log.resolveSibling("." + baseName(log) + "_compaction.lock"));
+    }
+
+    static Path indexFileFor(Path segment) {
+        String name = segment.getFileName().toString();
+        return segment.resolveSibling(name.substring(0, name.length() - ".txt".length()) + ".idx");
+    }
+
+    private static AttendanceSegments load(Path log, Path manifest, String stamp) throws IOException {
+        if (!Files.exists(manifest)) return new AttendanceSegments(0, Collections.emptyList(), stamp);
+        List<String> lines = Files.readAllLines(manifest, StandardCharsets.UTF_8);
+        if (lines.isEmpty()) return new AttendanceSegments(0, Collections.emptyList(), stamp);
+
+        Path dir = directoryFor(log);
+        List<Segment> segments = new ArrayList<>();
+        try {
+            long generation = Long.parseLong(lines.get(0).trim());
+            for (String line : lines.subList(1, lines.size())) {
+                String[] parts = line.split("\\|");
+                if (parts.length != 6) throw new IOException("Bad segment entry in " + manifest + ": " + line);
+                segments.add(new Segment(dir.resolve(parts[0]), Integer.parseInt(parts[1]), parts[2],
+                        Integer.parseInt(parts[3]), parts[4], Integer.parseInt(parts[5])));
+            }
+            return new AttendanceSegments(generation, Collections.unmodifiableList(segments), stamp);
+        } catch (NumberFormatException e) {
+            throw new IOException("Bad segment manifest " + manifest, e);
+        }
+    }
+
+    private static String baseName(Path log) {
+        String name = log.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return dot > 0 ? name.substring(0, dot) : name;
+    }
+}
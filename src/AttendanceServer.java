@@ -0,0 +1,321 @@
+package ui;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.DayOfWeek;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+// Headless JSON API over the same shared, in-memory data the dashboards use:
+//   GET /api/attendance   the logged-in student's Attendance card (HTTP Basic auth, student credentials)
+//   GET /api/timetable    the weekly timetable
+// Requests run on virtual threads when the JDK has them (21+), otherwise on a fixed pool. They read one
+// immutable Snapshot (credentials, enrolments, classes held, attendance counts, timetable JSON) published
+// through a volatile field and rebuilt every REFRESH_MILLIS on a background thread from the shared caches,
+// which are the ones that check their files; a request takes no lock and stats no file. A JDBC store is
+// still asked for the counts on each request.
+// Basic credentials travel in clear over plain HTTP, so the server listens on localhost unless a host is
+// given; serve other machines only through an HTTPS proxy.
+// Checking a password the process has not seen match costs a full PBKDF2 run, so at most HASH_PERMITS of
+// those run at once (a request waits HASH_WAIT_MILLIS for a turn, then gets 503), and an address with
+// MAX_FAILURES failed logins within FAILURE_WINDOW_MILLIS gets 429 without a check until the window ends.
+// Remembered logins skip both, so wrong passwords cannot hold up the students already logged in.
+// Usage: AttendanceServer [port] [host]   (default 8080 on localhost)
+public final class AttendanceServer {
+    private static final int DEFAULT_PORT = 8080;
+    private static final int BACKLOG = 4096;
+    private static final long REFRESH_MILLIS = 1000;
+    private static final int HASH_PERMITS = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+    private static final long HASH_WAIT_MILLIS = 2000;
+    private static final int MAX_FAILURES = 5;
+    private static final long FAILURE_WINDOW_MILLIS = 60_000;
+    // Addresses tracked before expired windows are dropped
+    private static final int MAX_TRACKED = 10_000;
+
+    private static final Semaphore hashing = new Semaphore(HASH_PERMITS);
+    private static final Map<InetAddress, Failures> failures = new ConcurrentHashMap<>();
+
+    private static volatile Snapshot snapshot;
+
+    private static final class Snapshot {
+        final CredentialRegistry.Credentials credentials;
+        final AttendanceSummary summary;
+        // course -> classes held so far
+        final Map<String, Integer> totals;
+        // The index the counts were copied from and its size then, so an unchanged index is not copied again
+        final AttendanceIndex index;
+        final int indexSize;
+        // null when the store is not the text store
+        final AttendanceIndex.Snapshot counts;
+        final Timetable timetable;
+        final String timetableJson;
+
+        Snapshot(CredentialRegistry.Credentials credentials, AttendanceSummary summary, Map<String, Integer> totals,
+                 AttendanceIndex index, int indexSize, AttendanceIndex.Snapshot counts, Timetable timetable,
+                 String timetableJson) {
+            this.credentials = credentials;
+            this.summary = summary;
+            this.totals = totals;
+            this.index = index;
+            this.indexSize = indexSize;
+            this.counts = counts;
+            this.timetable = timetable;
+            this.timetableJson = timetableJson;
+        }
+    }
+
+    // Failed logins from one address since the window started
+    private static final class Failures {
+        final long since;
+        final int count;
+
+        Failures(long since, int count) {
+            this.since = since;
+            this.count = count;
+        }
+
+        boolean expired(long now) {
+            return now - since > FAILURE_WINDOW_MILLIS;
+        }
+    }
+
+    private AttendanceServer() {
+    }
+
+    // Listens on localhost
+    public static HttpServer start(int port) throws IOException {
+        return start(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+    }
+
+    public static HttpServer start(InetSocketAddress address) throws IOException {
+        refresh();
+        ScheduledExecutorService refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "api-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        refresher.scheduleWithFixedDelay(() -> {
+            try {
+                refresh();
+            } catch (IOException | RuntimeException e) {
+                e.printStackTrace();
+            }
+        }, REFRESH_MILLIS, REFRESH_MILLIS, TimeUnit.MILLISECONDS);
+
+        HttpServer server = HttpServer.create(address, BACKLOG);
+        server.createContext("/api/attendance", get(AttendanceServer::attendance));
+        server.createContext("/api/timetable", get(exchange -> send(exchange, 200, snapshot.timetableJson)));
+        server.setExecutor(requestExecutor());
+        server.start();
+        return server;
+    }
+
+    // Rebuilds the snapshot; only the parts whose source changed are copied again
+    private static void refresh() throws IOException {
+        Snapshot previous = snapshot;
+        AttendanceStore store = AttendanceStore.shared();
+        AttendanceIndex index = store instanceof TextAttendanceStore ? AttendanceIndex.current() : null;
+        int indexSize = index == null ? 0 : index.size();
+        AttendanceIndex.Snapshot counts = null;
+        if (index != null) {
+            counts = previous != null && previous.index == index && previous.indexSize == indexSize
+                    ? previous.counts : index.snapshot();
+        }
+
+        AttendanceSummary summary = AttendanceSummary.shared();
+        Map<String, Integer> totals = new HashMap<>();
+        for (String course : summary.getCourses()) {
+            totals.put(course, summary.total(course));
+        }
+        Timetable timetable = Timetable.shared();
+        String json = previous != null && previous.timetable == timetable ? previous.timetableJson
+                : timetableJson(timetable);
+        snapshot = new Snapshot(CredentialRegistry.shared().refresh(), summary, totals, index, indexSize, counts,
+                timetable, json);
+    }
+
+    private static void attendance(HttpExchange exchange) throws IOException {
+        Snapshot current = snapshot;
+        String[] login = basicCredentials(exchange);
+        if (login == null) {
+            unauthorized(exchange);
+            return;
+        }
+        String student = login[0];
+        if (!current.credentials.validateRemembered("Student", student, login[1])) {
+            InetAddress address = exchange.getRemoteAddress().getAddress();
+            long now = System.currentTimeMillis();
+            Failures failed = failures.get(address);
+            if (failed != null && !failed.expired(now) && failed.count >= MAX_FAILURES) {
+                exchange.getResponseHeaders().set("Retry-After",
+                        String.valueOf((failed.since + FAILURE_WINDOW_MILLIS - now) / 1000 + 1));
+                send(exchange, 429, "{\"error\":\"Too many failed logins\"}");
+                return;
+            }
+            boolean valid;
+            try {
+                if (!hashing.tryAcquire(HASH_WAIT_MILLIS, TimeUnit.MILLISECONDS)) {
+                    exchange.getResponseHeaders().set("Retry-After", "1");
+                    send(exchange, 503, "{\"error\":\"Busy checking logins\"}");
+                    return;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                send(exchange, 503, "{\"error\":\"Busy checking logins\"}");
+                return;
+            }
+            try {
+                valid = current.credentials.validate("Student", student, login[1]);
+            } finally {
+                hashing.release();
+            }
+            if (!valid) {
+                recordFailure(address, now);
+                unauthorized(exchange);
+                return;
+            }
+            failures.remove(address);
+        }
+
+        StringBuilder json = new StringBuilder("{\"student\":").append(quote(student)).append(",\"courses\":[");
+        AttendanceSummary.CountsSource counts = current.counts != null ? current.counts::get
+                : AttendanceStore.shared()::counts;
+        List<AttendanceSummary.Row> rows = current.summary.rows(student, counts,
+                course -> current.totals.getOrDefault(course, 0));
+        for (int i = 0; i < rows.size(); i++) {
+            AttendanceSummary.Row row = rows.get(i);
+            if (i > 0) json.append(',');
+            json.append("{\"code\":").append(quote(row.getCourse()))
+                    .append(",\"name\":").append(quote(row.getCourseName()))
+                    .append(",\"total\":").append(row.getTotal())
+                    .append(",\"attended\":").append(row.getAttended())
+                    .append(",\"missed\":").append(row.getMissed())
+                    .append(",\"percentage\":").append(row.getPercentage())
+                    .append('}');
+        }
+        send(exchange, 200, json.append("]}").toString());
+    }
+
+    static String timetableJson(Timetable timetable) {
+        StringBuilder json = new StringBuilder("{\"days\":[");
+        StringBuilder slots = new StringBuilder();
+        boolean firstDay = true;
+        for (DayOfWeek day : timetable.getDays()) {
+            if (!firstDay) json.append(',');
+            json.append(quote(Timetable.shortName(day)));
+            firstDay = false;
+            for (Timetable.Slot slot : timetable.slots(day)) {
+                if (slots.length() > 0) slots.append(',');
+                slots.append("{\"day\":").append(quote(Timetable.shortName(day)))
+                        .append(",\"time\":").append(quote(slot.getTime().toString()))
+                        .append(",\"subject\":").append(quote(slot.getSubject()))
+                        .append(",\"room\":").append(quote(slot.getRoom()))
+                        .append('}');
+            }
+        }
+        return json.append("],\"slots\":[").append(slots).append("]}").toString();
+    }
+
+    // Username and password from a Basic Authorization header, null if there is none
+    private static String[] basicCredentials(HttpExchange exchange) {
+        String header = exchange.getRequestHeaders().getFirst("Authorization");
+        if (header == null || !header.regionMatches(true, 0, "Basic ", 0, 6)) return null;
+        String decoded;
+        try {
+            decoded = new String(Base64.getDecoder().decode(header.substring(6).trim()), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        int colon = decoded.indexOf(':');
+        if (colon <= 0) return null;
+        return new String[] {decoded.substring(0, colon), decoded.substring(colon + 1)};
+    }
+
+    private static void recordFailure(InetAddress address, long now) {
+        if (failures.size() >= MAX_TRACKED) failures.values().removeIf(failed -> failed.expired(now));
+        failures.compute(address, (key, failed) -> failed == null || failed.expired(now)
+                ? new Failures(now, 1) : new Failures(failed.since, failed.count + 1));
+    }
+
+    private static void unauthorized(HttpExchange exchange) throws IOException {
+        exchange.getResponseHeaders().set("WWW-Authenticate", "Basic realm=\"attendance\", charset=\"UTF-8\"");
+        send(exchange, 401, "{\"error\":\"Student username and password required\"}");
+    }
+
+    private static HttpHandler get(HttpHandler handler) {
+        return exchange -> {
+            try {
+                if (!exchange.getRequestMethod().equals("GET")) {
+                    exchange.getResponseHeaders().set("Allow", "GET");
+                    send(exchange, 405, "{\"error\":\"Method not allowed\"}");
+                } else {
+                    handler.handle(exchange);
+                }
+            } catch (IOException | RuntimeException e) {
+                e.printStackTrace();
+                send(exchange, 500, "{\"error\":\"Internal error\"}");
+            } finally {
+                exchange.close();
+            }
+        };
+    }
+
+    private static void send(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.getResponseHeaders().set("Cache-Control", "no-store");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    static String quote(String text) {
+        StringBuilder quoted = new StringBuilder(text.length() + 2).append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '"': quoted.append("\\\""); break;
+                case '\\': quoted.append("\\\\"); break;
+                case '\n': quoted.append("\\n"); break;
+                case '\r': quoted.append("\\r"); break;
+                case '\t': quoted.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        quoted.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        quoted.append(c);
+                    }
+            }
+        }
+        return quoted.append('"').toString();
+    }
+
+    // A virtual thread per request on JDK 21+, looked up reflectively so the code still builds on 17
+    private static ExecutorService requestExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return Executors.newFixedThreadPool(Math.max(32, Runtime.getRuntime().availableProcessors() * 8));
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        InetSocketAddress address = args.length > 1 ? new InetSocketAddress(args[1], port)
+                : new InetSocketAddress(InetAddress.getLoopbackAddress(), port);
+        FileTransaction.recoverAll();
+        start(address);
+        System.out.println("Serving /api/attendance and /api/timetable on " + address);
+    }
+}
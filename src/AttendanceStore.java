@@ -0,0 +1,42 @@
+package ui;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.List;
+
+// Where attendance lives. The text store (attendance.txt) is the default; setting
+// -Dattendance.jdbc.url=jdbc:h2:./data/attendance (or jdbc:sqlite:data/attendance.db) with the driver
+// on the classpath switches the dashboards to JdbcAttendanceStore; -Dattendance.binary.file=data/attendance.bin
+// to BinaryAttendanceStore.
+// Every store and every total follows one rule: a student has one mark per day and course, and when it is
+// recorded more than once the last write wins. Rows with an unreadable date are not marks.
+public interface AttendanceStore {
+    String JDBC_URL_PROPERTY = "attendance.jdbc.url";
+    String BINARY_FILE_PROPERTY = "attendance.binary.file";
+
+    static AttendanceStore shared() throws IOException {
+        String url = System.getProperty(JDBC_URL_PROPERTY);
+        if (url != null && !url.isEmpty()) return JdbcAttendanceStore.shared(url);
+        String binary = System.getProperty(BINARY_FILE_PROPERTY);
+        if (binary != null && !binary.isEmpty()) return BinaryAttendanceStore.shared(Paths.get(binary));
+        return TextAttendanceStore.shared();
+    }
+
+    AttendanceIndex.Counts counts(String student, String course) throws IOException;
+
+    // Records the marks, replacing earlier marks of the same student|day|course and skipping records that
+    // repeat them; returns the number written
+    int append(List<AttendanceRecord> records) throws IOException;
+
+    // The course's records from one day to another, inclusive, ordered by day and student
+    List<AttendanceRecord> courseHistory(String course, LocalDate from, LocalDate to) throws IOException;
+
+    // The student's records in every course from one day to another, inclusive, ordered by day and course
+    List<AttendanceRecord> studentHistory(String student, LocalDate from, LocalDate to) throws IOException;
+
+    // Everyone recorded for the course on that day
+    default List<AttendanceRecord> dayRoster(String course, LocalDate day) throws IOException {
+        return courseHistory(course, day, day);
+    }
+}
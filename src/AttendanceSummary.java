@@ -0,0 +1,155 @@
+package ui;
+
+import java.io.*;
+import java.nio.file.*;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.ToIntFunction;
+
+// What a student sees on the Attendance card: per enrolled course, the classes held so far and how many
+// were attended or missed. Enrolments (students.txt) and fixed totals (class_totals.txt) are parsed once
+// per file version, and the counts come from the shared AttendanceStore, so a lookup reads no files.
+public final class AttendanceSummary {
+    private static final Path STUDENT_FILE = Paths.get("data/students.txt");
+    private static final Path CLASS_TOTALS_FILE = Paths.get("data/class_totals.txt");
+
+    private static AttendanceSummary shared;
+    private static String sharedStamp;
+
+    // username -> course codes, from the first students.txt row of the user
+    private final Map<String, List<String>> enrolments = new HashMap<>();
+    // course code -> total from class_totals.txt, overriding the timetable count
+    private final Map<String, Integer> fixedTotals = new HashMap<>();
+
+    // Where rows() gets each course's counts: the shared AttendanceStore, or a snapshot of it
+    public interface CountsSource {
+        AttendanceIndex.Counts counts(String student, String course) throws IOException;
+    }
+
+    public static final class Row {
+        private final String course;
+        private final int total;
+        private final int attended;
+        private final int missed;
+
+        Row(String course, int total, int attended, int missed) {
+            this.course = course;
+            this.total = total;
+            this.attended = attended;
+            this.missed = missed;
+        }
+
+        public String getCourse() {
+            return course;
+        }
+
+        public String getCourseName() {
+            return courseName(course);
+        }
+
+        public int getTotal() {
+            return total;
+        }
+
+        public int getAttended() {
+            return attended;
+        }
+
+        public int getMissed() {
+            return missed;
+        }
+
+        // Attended classes as a whole percentage of the classes held, rounded down
+        public int getPercentage() {
+            return total == 0 ? 0 : (int) ((attended / (double) total) * 100);
+        }
+    }
+
+    public static synchronized AttendanceSummary shared() {
+        String stamp = DataFiles.stamp(STUDENT_FILE) + "/" + DataFiles.stamp(CLASS_TOTALS_FILE);
+        if (shared == null || !stamp.equals(sharedStamp)) {
+            AttendanceSummary summary = new AttendanceSummary();
+            try {
+                summary.loadEnrolments(STUDENT_FILE);
+                summary.loadFixedTotals(CLASS_TOTALS_FILE);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            shared = summary;
+            sharedStamp = stamp;
+        }
+        return shared;
+    }
+
+    public Set<String> getStudents() {
+        return Collections.unmodifiableSet(enrolments.keySet());
+    }
+
+    public List<String> coursesOf(String student) {
+        return enrolments.getOrDefault(student, Collections.emptyList());
+    }
+
+    public List<Row> rows(String student) throws IOException {
+        return rows(student, AttendanceStore.shared()::counts, this::total);
+    }
+
+    // Same, from counts and totals the caller already holds
+    public List<Row> rows(String student, CountsSource source, ToIntFunction<String> totals) throws IOException {
+        List<Row> rows = new ArrayList<>();
+        for (String course : coursesOf(student)) {
+            AttendanceIndex.Counts counts = source.counts(student, course);
+            rows.add(new Row(course, totals.applyAsInt(course), counts.getAttended(), counts.getMissed()));
+        }
+        return rows;
+    }
+
+    // Every course some student is enrolled in
+    public Set<String> getCourses() {
+        Set<String> courses = new TreeSet<>();
+        for (List<String> enrolled : enrolments.values()) {
+            courses.addAll(enrolled);
+        }
+        return courses;
+    }
+
+    // Classes held up to today: class_totals.txt when it lists the course, otherwise the timetable,
+    // holidays and working-day overrides from the semester start
+    public int total(String course) {
+        Integer fixed = fixedTotals.get(course);
+        if (fixed != null) return fixed;
+        return SessionCalendar.current().count(courseName(course), LocalDate.now());
+    }
+
+    public static String courseName(String code) {
+        switch (code) {
+            case "A": return "OOP";
+            case "B": return "Physics";
+            case "C": return "Elec";
+            case "D": return "DSML";
+            case "E": return "Math";
+            case "F": return "Ecology";
+            default: return code;
+        }
+    }
+
+    private void loadEnrolments(Path file) throws IOException {
+        for (String line : DataFiles.readLines(file)) {
+            String[] parts = line.split(",");
+            if (parts.length >= 3 && !enrolments.containsKey(parts[0])) {
+                enrolments.put(parts[0], Collections.unmodifiableList(Arrays.asList(parts[2].split(";"))));
+            }
+        }
+    }
+
+    private void loadFixedTotals(Path file) throws IOException {
+        for (String line : DataFiles.readLines(file)) {
+            String[] parts = line.split(",");
+            if (parts.length != 2 || fixedTotals.containsKey(parts[0])) continue;
+            try {
+                fixedTotals.put(parts[0], Integer.parseInt(parts[1]));
+            } catch (NumberFormatException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package ui;
+
+import java.util.*;
+import java.util.List;
+import javax.swing.table.AbstractTableModel;
+
+// The student's Attendance table over AttendanceSummary rows. Columns are typed (Integer counts, Double
+// percentage) so a TableRowSorter orders them numerically. Cell values, their display text and whether the row
+// is below the threshold are worked out once per load, so sorting, filtering and painting only read arrays.
+public final class AttendanceSummaryTableModel extends AbstractTableModel {
+    static final int COURSE = 0;
+    static final int TOTAL = 1;
+    static final int ATTENDED = 2;
+    static final int MISSED = 3;
+    static final int PERCENTAGE = 4;
+
+    // Attendance below this percentage of classes held is highlighted
+    static final int DEFAULT_THRESHOLD = 75;
+
+    private static final String[] COLUMNS = {"Course", "Total Classes", "Attended", "Missed", "Percentage (%)"};
+    private static final Class<?>[] TYPES = {String.class, Integer.class, Integer.class, Integer.class, Double.class};
+
+    private final int threshold;
+    private List<AttendanceSummary.Row> rows = Collections.emptyList();
+    private Object[][] values = new Object[0][];
+    private String[][] text = new String[0][];
+    private boolean[] low = new boolean[0];
+
+    public AttendanceSummaryTableModel() {
+        this(DEFAULT_THRESHOLD);
+    }
+
+    public AttendanceSummaryTableModel(int threshold) {
+        this.threshold = threshold;
+    }
+
+    public int getThreshold() {
+        return threshold;
+    }
+
+    public void setRows(List<AttendanceSummary.Row> loaded) {
+        rows = new ArrayList<>(loaded);
+        values = new Object[rows.size()][];
+        text = new String[rows.size()][];
+        low = new boolean[rows.size()];
+        for (int i = 0; i < rows.size(); i++) {
+            AttendanceSummary.Row row = rows.get(i);
+            double percentage = row.getTotal() == 0 ? 0 : row.getAttended() * 100.0 / row.getTotal();
+            values[i] = new Object[]{row.getCourseName(), row.getTotal(), row.getAttended(), row.getMissed(), percentage};
+            text[i] = new String[]{row.getCourseName(), Integer.toString(row.getTotal()),
+                    Integer.toString(row.getAttended()), Integer.toString(row.getMissed()), row.getPercentage() + "%"};
+            low[i] = percentage < threshold;
+        }
+        fireTableDataChanged();
+    }
+
+    public AttendanceSummary.Row getRow(int row) {
+        return rows.get(row);
+    }
+
+    // Whether the row's attendance is below the threshold; rows are model indexes
+    public boolean isLow(int row) {
+        return low[row];
+    }
+
+    // What the cell shows, e.g. "83%" for the percentage
+    public String getText(int row, int column) {
+        return text[row][column];
+    }
+
+    @Override
+    public int getRowCount() {
+        return rows.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMNS[column];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return TYPES[column];
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        return values[row][column];
+    }
+}
@@ -0,0 +1,226 @@
+package ui;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.*;
+
+// The only writer of attendance.txt inside the application. Submissions wait in a bounded queue;
+// one thread drains everything pending, drops rows that repeat the latest mark of their student|day|course
+// (in the log or earlier in the same group) and appends the group with one write and one force(). A row that
+// changes a mark is appended and, the last write winning, replaces it.
+// The callers' futures complete with the number of rows written once the group is durable. Groups are appended holding the log lock, so writers in
+// other processes and a compaction swapping the log take turns with them. Once the log passes 16 MB
+// (-Dattendance.compact.bytes, 0 to turn it off) it is compacted into sorted segments on a background thread
+// (see AttendanceCompactor); after a compaction fails or finds another process compacting, the next try
+// waits, starting at a minute and doubling up to an hour.
+public final class AttendanceWriter {
+    private static final Path ATTENDANCE_FILE = Paths.get("data/attendance.txt");
+    private static final int QUEUE_CAPACITY = 256;
+    private static final int WRITE_BUFFER = 1 << 20;
+    private static final long COMPACT_BYTES = Long.getLong("attendance.compact.bytes", 16L << 20);
+    private static final long MIN_BACKOFF_NANOS = TimeUnit.MINUTES.toNanos(1);
+    private static final long MAX_BACKOFF_NANOS = TimeUnit.HOURS.toNanos(1);
+
+    private static AttendanceWriter shared;
+
+    private final Path log;
+    private final AttendanceDedupIndex dedupIndex;
+    private final BlockingQueue<Batch> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    // Held while a group is appended; compaction takes it only to swap the new segments in
+    private final DataLock logLock;
+    private long logSize;
+    private CompletableFuture<AttendanceCompactor.Result> compaction;
+    // No compaction starts before this System.nanoTime(); set after one failed or was skipped
+    private long compactAfter;
+    private long backoff;
+
+    private static final class Batch {
+        final List<AttendanceRecord> records;
+        final CompletableFuture<Integer> done = new CompletableFuture<>();
+        int written;
+
+        Batch(List<AttendanceRecord> records) {
+            this.records = records;
+        }
+    }
+
+    private AttendanceWriter(Path log, AttendanceDedupIndex dedupIndex) {
+        this.log = log;
+        this.dedupIndex = dedupIndex;
+        this.logLock = AttendanceSegments.logLock(log);
+    }
+
+    public static synchronized AttendanceWriter shared() throws IOException {
+        if (shared == null) {
+            shared = open(ATTENDANCE_FILE, AttendanceDedupIndex.shared());
+        }
+        return shared;
+    }
+
+    // A writer for another log; there must be only one per file
+    public static AttendanceWriter open(Path log, AttendanceDedupIndex dedupIndex) {
+        AttendanceWriter writer = new AttendanceWriter(log, dedupIndex);
+        Thread thread = new Thread(writer::drain, "attendance-writer");
+        thread.setDaemon(true);
+        thread.start();
+        return writer;
+    }
+
+    public AttendanceDedupIndex getDedupIndex() {
+        return dedupIndex;
+    }
+
+    // Queues the records, blocking while the queue is full
+    public CompletableFuture<Integer> append(List<AttendanceRecord> records) throws InterruptedException {
+        Batch batch = new Batch(new ArrayList<>(records));
+        queue.put(batch);
+        return batch.done;
+    }
+
+    private void drain() {
+        List<Batch> group = new ArrayList<>();
+        while (true) {
+            try {
+                group.add(queue.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            queue.drainTo(group);
+            try {
+                logLock.lock();
+                try {
+                    commit(group);
+                } finally {
+                    logLock.unlock();
+                }
+                for (Batch batch : group) {
+                    batch.done.complete(batch.written);
+                }
+            } catch (IOException | RuntimeException e) {
+                for (Batch batch : group) {
+                    batch.done.completeExceptionally(e);
+                }
+            }
+            group.clear();
+            if (COMPACT_BYTES > 0 && logSize >= COMPACT_BYTES && compactionDue()) compact();
+        }
+    }
+
+    private void commit(List<Batch> group) throws IOException {
+        Map<LocalDate, Map<String, Boolean>> recorded = new HashMap<>();
+        ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER);
+        String newline = System.lineSeparator();
+        boolean wrote = false;
+        // Lines other processes appended since this writer's last group
+        dedupIndex.refresh();
+
+        try (FileChannel channel = FileChannel.open(log, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND)) {
+            for (Batch batch : group) {
+                for (AttendanceRecord record : batch.records) {
+                    LocalDate day = record.getDay();
+                    if (day != null) {
+                        Map<String, Boolean> marks = recorded.get(day);
+                        if (marks == null) {
+                            marks = dedupIndex.marksFor(day);
+                            recorded.put(day, marks);
+                        }
+                        Boolean previous = marks.put(AttendanceDedupIndex.key(record.getStudent(), record.getCourse()),
+                                record.isPresent());
+                        if (previous != null && previous == record.isPresent()) continue;
+                    }
+                    byte[] bytes = (record.toLine() + newline).getBytes(StandardCharsets.UTF_8);
+                    if (bytes.length > buffer.remaining()) flush(channel, buffer);
+                    if (bytes.length > buffer.capacity()) {
+                        writeFully(channel, ByteBuffer.wrap(bytes));
+                    } else {
+                        buffer.put(bytes);
+                    }
+                    batch.written++;
+                    wrote = true;
+                }
+            }
+            flush(channel, buffer);
+            if (wrote) channel.force(false);
+            logSize = channel.size();
+        }
+        if (wrote) dedupIndex.refresh();
+    }
+
+    private synchronized boolean compactionDue() {
+        return System.nanoTime() - compactAfter >= 0;
+    }
+
+    // Compacts the log on its own thread; appends wait only while the new segments are swapped in.
+    // Returns the running compaction if there is one. Completes with null if another process is compacting.
+    public synchronized CompletableFuture<AttendanceCompactor.Result> compact() {
+        if (compaction != null && !compaction.isDone()) return compaction;
+        CompletableFuture<AttendanceCompactor.Result> done = new CompletableFuture<>();
+        Thread thread = new Thread(() -> {
+            try {
+                AttendanceCompactor.Result result = runCompaction();
+                compacted(result != null);
+                done.complete(result);
+            } catch (IOException | RuntimeException e) {
+                e.printStackTrace();
+                compacted(false);
+                done.completeExceptionally(e);
+            }
+        }, "attendance-compactor");
+        thread.setDaemon(true);
+        compaction = done;
+        thread.start();
+        return done;
+    }
+
+    // Backs off after a compaction that failed or was skipped, so a log stuck over the limit is not
+    // compacted again after every group
+    private synchronized void compacted(boolean succeeded) {
+        if (succeeded) {
+            backoff = 0;
+            compactAfter = System.nanoTime();
+        } else {
+            backoff = backoff == 0 ? MIN_BACKOFF_NANOS : Math.min(backoff * 2, MAX_BACKOFF_NANOS);
+            compactAfter = System.nanoTime() + backoff;
+        }
+    }
+
+    private AttendanceCompactor.Result runCompaction() throws IOException {
+        DataLock compacting = AttendanceSegments.compactionLock(log);
+        if (!compacting.tryLock()) return null;
+        try {
+            AttendanceCompactor.Pending pending = new AttendanceCompactor(log).prepare();
+            AttendanceCompactor.Result result;
+            logLock.lock();
+            try {
+                // Every line that stays in the log has to be in the key index before it is rebased
+                dedupIndex.refresh();
+                result = pending.swap();
+                logSize = Files.size(log);
+                dedupIndex.rebase(result.getGeneration(), logSize);
+            } finally {
+                logLock.unlock();
+            }
+            return result;
+        } finally {
+            compacting.unlock();
+        }
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        writeFully(channel, buffer);
+        buffer.clear();
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package ui;
+
+import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+import javax.swing.*;
+
+// Runs file reads on SwingWorker threads and hands the results back on the EDT.
+// Loads are grouped by the card that shows them, so switching cards cancels loads nobody will see.
+public class BackgroundLoader {
+
+    public interface Task<T> {
+        T call() throws Exception;
+    }
+
+    private final Map<String, SwingWorker<?, ?>> running = new HashMap<>();
+
+    // Starts a load for the given card; a previous load with the same card and key is cancelled
+    public <T> void load(String card, String key, Task<T> task, Consumer<T> onDone) {
+        load(card, key, task, onDone, Throwable::printStackTrace);
+    }
+
+    public <T> void load(String card, String key, Task<T> task, Consumer<T> onDone, Consumer<Throwable> onError) {
+        String id = card + "/" + key;
+        SwingWorker<?, ?> previous = running.remove(id);
+        if (previous != null) previous.cancel(true);
+
+        SwingWorker<T, Void> worker = new SwingWorker<T, Void>() {
+            @Override
+            protected T doInBackground() throws Exception {
+                return task.call();
+            }
+
+            @Override
+            protected void done() {
+                if (running.get(id) == this) running.remove(id);
+                if (isCancelled()) return;
+                deliver(this, onDone, onError);
+            }
+        };
+        running.put(id, worker);
+        worker.execute();
+    }
+
+    // Runs work that must not be cancelled (writes) off the EDT
+    public <T> void run(Task<T> task, Consumer<T> onDone, Consumer<Throwable> onError) {
+        new SwingWorker<T, Void>() {
+            @Override
+            protected T doInBackground() throws Exception {
+                return task.call();
+            }
+
+            @Override
+            protected void done() {
+                deliver(this, onDone, onError);
+            }
+        }.execute();
+    }
+
+    // Cancels the loads of every card except the one being shown
+    public void showing(String card) {
+        Iterator<Map.Entry<String, SwingWorker<?, ?>>> it = running.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, SwingWorker<?, ?>> entry = it.next();
+            if (!entry.getKey().startsWith(card + "/")) {
+                entry.getValue().cancel(true);
+                it.remove();
+            }
+        }
+    }
+
+    public void cancelAll() {
+        for (SwingWorker<?, ?> worker : running.values()) {
+            worker.cancel(true);
+        }
+        running.clear();
+    }
+
+    private static <T> void deliver(SwingWorker<T, Void> worker, Consumer<T> onDone, Consumer<Throwable> onError) {
+        try {
+            onDone.accept(worker.get());
+        } catch (CancellationException e) {
+            // superseded, nothing to show
+        } catch (ExecutionException e) {
+            onError.accept(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package ui;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.Predicate;
+
+// An AttendanceBinaryLog in place of attendance.txt, chosen with -Dattendance.binary.file=data/attendance.bin
+// (convert the text log first with AttendanceBinaryLog to-binary). Counts come from an AttendanceIndex fed
+// with the log's records, read from the last known end as entries are appended; a log replaced by another
+// file or cut shorter is read again from the start. History queries sweep the mapped records. Appends hold
+// a lock file next to the log, so writers in several processes take turns. Alerts, compaction and the
+// dashboards' file watcher follow attendance.txt and do not see this log.
+public final class BinaryAttendanceStore implements AttendanceStore {
+    private static final Map<Path, BinaryAttendanceStore> shared = new HashMap<>();
+
+    private final Path file;
+    private final DataLock lock;
+    private AttendanceIndex index;
+    // Bytes of the log fed to the index, and the file they were read from
+    private long offset;
+    private Object fileKey;
+
+    private BinaryAttendanceStore(Path file) {
+        this.file = file;
+        this.lock = DataLock.of(file.resolveSibling("." + file.getFileName() + ".lock"));
+        this.index = AttendanceIndex.empty(file);
+    }
+
+    public static synchronized BinaryAttendanceStore shared(Path file) {
+        return shared.computeIfAbsent(file.toAbsolutePath().normalize(), BinaryAttendanceStore::new);
+    }
+
+    @Override
+    public synchronized AttendanceIndex.Counts counts(String student, String course) throws IOException {
+        catchUp();
+        return index.get(student, course);
+    }
+
+    // Records that change or add a mark are appended in one write; as in attendance.txt, the last one wins
+    @Override
+    public int append(List<AttendanceRecord> records) throws IOException {
+        // The lock file comes first, as for the text log's writer
+        lock.lock();
+        try {
+            synchronized (this) {
+                catchUp();
+                List<AttendanceRecord> written = new ArrayList<>();
+                Map<String, Boolean> pending = new HashMap<>();
+                for (AttendanceRecord record : records) {
+                    int day = record.getEpochDay();
+                    if (day != AttendanceColumns.NO_DAY) {
+                        String key = record.getStudent() + "|" + day + "|" + record.getCourse();
+                        Boolean previous = pending.containsKey(key) ? pending.get(key)
+                                : index.mark(record.getStudent(), record.getCourse(), day);
+                        if (previous != null && previous == record.isPresent()) continue;
+                        pending.put(key, record.isPresent());
+                    }
+                    written.add(record);
+                }
+                if (written.isEmpty()) return 0;
+                AttendanceBinaryLog.append(file, offset, written);
+                catchUp();
+                return written.size();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public List<AttendanceRecord> courseHistory(String course, LocalDate from, LocalDate to) throws IOException {
+        return history(from, to, record -> record.getCourse().equals(course));
+    }
+
+    @Override
+    public List<AttendanceRecord> studentHistory(String student, LocalDate from, LocalDate to) throws IOException {
+        return history(from, to, record -> record.getStudent().equals(student));
+    }
+
+    // One sweep over every record; a key recorded again later shows its latest value
+    private List<AttendanceRecord> history(LocalDate from, LocalDate to, Predicate<AttendanceRecord> matches)
+            throws IOException {
+        int first = (int) from.toEpochDay();
+        int last = (int) to.toEpochDay();
+        Map<String, AttendanceRecord> rows = new HashMap<>();
+        AttendanceBinaryLog.scan(file, 0, record -> {
+            int day = record.getEpochDay();
+            if (day == AttendanceColumns.NO_DAY || day < first || day > last || !matches.test(record)) return;
+            rows.put(record.getStudent() + "|" + day + "|" + record.getCourse(), record);
+        });
+        List<AttendanceRecord> result = new ArrayList<>(rows.values());
+        result.sort(AttendanceHistory.ORDER);
+        return result;
+    }
+
+    // Feeds the entries appended since the last call to the index
+    private void catchUp() throws IOException {
+        if (!Files.exists(file)) {
+            if (offset > 0) reset(null);
+            return;
+        }
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        if (attributes.size() < offset || !Objects.equals(attributes.fileKey(), fileKey)) reset(attributes.fileKey());
+        if (attributes.size() == offset) return;
+        try {
+            offset = AttendanceBinaryLog.scan(file, offset, record -> {
+                try {
+                    index.addRecord(record);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private void reset(Object key) {
+        index = AttendanceIndex.empty(file);
+        offset = 0;
+        fileKey = key;
+    }
+}
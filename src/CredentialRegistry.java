@@ -0,0 +1,338 @@
+package ui;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.security.spec.InvalidKeySpecException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiPredicate;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+// Login lookups keyed by role and username. Each credentials file is parsed once and re-read only
+// when its modification time changes. refresh() publishes the parsed files as an immutable Credentials
+// snapshot through a volatile field, so snapshot() readers take no lock and stat no file.
+// Passwords are stored as PBKDF2WithHmacSHA256 hashes, "pbkdf2$iterations$salt$hash" in hex. Older rows hold
+// the plaintext password or one round of salted SHA-256 ("sha256$salt$hash"); migrate() rewrites them in the
+// files, wrapping the SHA-256 ones, whose passwords are unknown, as "pbkdf2-sha256$iterations$salt$sha256
+// salt$hash": PBKDF2 over the hex SHA-256 digest. The application migrates in the background at startup and
+// old rows log in until then. A successful check is remembered as a keyed SHA-256 digest, so a client sending
+// the same credentials again, as the HTTP API's do on every request, does not pay for the PBKDF2 rounds again;
+// a wrong password always does.
+// Usage: CredentialRegistry   (migrates the files now)
+public final class CredentialRegistry {
+    private static final String HASH_PREFIX = "pbkdf2$";
+    private static final String WRAPPED_PREFIX = "pbkdf2-sha256$";
+    private static final String LEGACY_PREFIX = "sha256$";
+    private static final int ITERATIONS = 600_000;
+    private static final int HASH_BITS = 256;
+    private static final SecureRandom RANDOM = new SecureRandom();
+    // Keys the remembered digests, so they are useless outside this process
+    private static final byte[] PROCESS_KEY = randomBytes(32);
+    // Stored hash -> keyed digest of the password that matched it
+    private static final Map<String, byte[]> verified = new ConcurrentHashMap<>();
+
+    private static final Path STUDENT_FILE = Paths.get("data/students.txt");
+    private static final Path PROFESSOR_FILE = Paths.get("data/professors.txt");
+    private static final Path ADMIN_FILE = Paths.get("data/admin.txt");
+    // Written by AdminDashboard.createUser as "role,username,password"
+    private static final Path USER_FILE = Paths.get("users.txt");
+
+    private static CredentialRegistry shared;
+
+    private volatile Credentials credentials;
+
+    private static final class Source {
+        final long modified;
+        // role + "," + username -> stored hashes (duplicate rows keep every password)
+        final Map<String, List<String>> entries;
+
+        Source(long modified, Map<String, List<String>> entries) {
+            this.modified = modified;
+            this.entries = entries;
+        }
+    }
+
+    // The credentials files as of one refresh(); never changes
+    public static final class Credentials {
+        private final Map<Path, Source> sources;
+
+        private Credentials(Map<Path, Source> sources) {
+            this.sources = sources;
+        }
+
+        public boolean validate(String role, String username, String password) {
+            return validate(role, username, password, CredentialRegistry::matches);
+        }
+
+        // Like validate(), but only for passwords confirmed without PBKDF2 rounds: one that already matched in
+        // this process, or a row not migrated yet. False means validate() has to run the full check.
+        public boolean validateRemembered(String role, String username, String password) {
+            return validate(role, username, password, CredentialRegistry::matchesRemembered);
+        }
+
+        private boolean validate(String role, String username, String password,
+                                 BiPredicate<String, String> matcher) {
+            Path roleFile = switch (role) {
+                case "Student" -> STUDENT_FILE;
+                case "Professor" -> PROFESSOR_FILE;
+                case "Admin" -> ADMIN_FILE;
+                default -> null;
+            };
+            if (roleFile == null) return false;
+
+            String key = role + "," + username;
+            if (matchesAny(entries(roleFile, key), password, matcher)) return true;
+            return !role.equals("Admin") && matchesAny(entries(USER_FILE, key), password, matcher);
+        }
+
+        private List<String> entries(Path file, String key) {
+            Source source = sources.get(file);
+            return source == null ? null : source.entries.get(key);
+        }
+    }
+
+    public static synchronized CredentialRegistry shared() {
+        if (shared == null) {
+            shared = new CredentialRegistry();
+        }
+        return shared;
+    }
+
+    // Checks the files first, for a login that must see a user added a moment ago
+    public boolean validate(String role, String username, String password) {
+        return refresh().validate(role, username, password);
+    }
+
+    // The last published credentials, without checking the files
+    public Credentials snapshot() {
+        Credentials current = credentials;
+        return current != null ? current : refresh();
+    }
+
+    // Re-reads the files that changed since the last refresh and publishes the result
+    public synchronized Credentials refresh() {
+        Map<Path, Source> previous = credentials == null ? Collections.emptyMap() : credentials.sources;
+        Map<Path, Source> sources = new HashMap<>();
+        sources.put(STUDENT_FILE, source(previous, STUDENT_FILE, "Student"));
+        sources.put(PROFESSOR_FILE, source(previous, PROFESSOR_FILE, "Professor"));
+        sources.put(ADMIN_FILE, source(previous, ADMIN_FILE, "Admin"));
+        sources.put(USER_FILE, source(previous, USER_FILE, null));
+        credentials = new Credentials(sources);
+        return credentials;
+    }
+
+    public static String hashPassword(String password) {
+        byte[] salt = randomBytes(16);
+        return HASH_PREFIX + ITERATIONS + "$" + toHex(salt) + "$" + toHex(pbkdf2(password, salt, ITERATIONS));
+    }
+
+    // Whether a stored password is a PBKDF2 hash, plain or wrapped, rather than plaintext or SHA-256
+    static boolean isHashed(String stored) {
+        return stored.startsWith(HASH_PREFIX) || stored.startsWith(WRAPPED_PREFIX);
+    }
+
+    static boolean matches(String stored, String password) {
+        if (!isHashed(stored)) return check(stored, password);
+        byte[] digest = keyedDigest(stored, password);
+        byte[] known = verified.get(stored);
+        // Only a repeat of the password that matched is fast; every other guess pays for the full check
+        if (known != null && MessageDigest.isEqual(known, digest)) return true;
+        boolean matched = check(stored, password);
+        if (matched) verified.put(stored, digest);
+        return matched;
+    }
+
+    static boolean matchesRemembered(String stored, String password) {
+        if (!isHashed(stored)) return check(stored, password);
+        byte[] known = verified.get(stored);
+        return known != null && MessageDigest.isEqual(known, keyedDigest(stored, password));
+    }
+
+    private static boolean check(String stored, String password) {
+        String[] parts = stored.split("\\$");
+        try {
+            if (stored.startsWith(HASH_PREFIX)) {
+                return parts.length == 4 && MessageDigest.isEqual(fromHex(parts[3]),
+                        pbkdf2(password, fromHex(parts[2]), Integer.parseInt(parts[1])));
+            }
+            if (stored.startsWith(WRAPPED_PREFIX)) {
+                return parts.length == 5 && MessageDigest.isEqual(fromHex(parts[4]),
+                        pbkdf2(toHex(digest(fromHex(parts[3]), password)), fromHex(parts[2]), Integer.parseInt(parts[1])));
+            }
+            if (stored.startsWith(LEGACY_PREFIX)) {
+                return parts.length == 3 && MessageDigest.isEqual(fromHex(parts[2]), digest(fromHex(parts[1]), password));
+            }
+        } catch (NumberFormatException e) {
+            return false;
+        }
+        // A plaintext row not migrated yet
+        return MessageDigest.isEqual(stored.getBytes(StandardCharsets.UTF_8), password.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // A stored password in the current format: plaintext is hashed, SHA-256 is wrapped, PBKDF2 is kept
+    static String migrate(String stored) {
+        if (isHashed(stored)) return stored;
+        String[] parts = stored.split("\\$");
+        if (stored.startsWith(LEGACY_PREFIX) && parts.length == 3) {
+            byte[] salt = randomBytes(16);
+            return WRAPPED_PREFIX + ITERATIONS + "$" + toHex(salt) + "$" + parts[1] + "$"
+                    + toHex(pbkdf2(parts[2], salt, ITERATIONS));
+        }
+        return hashPassword(stored);
+    }
+
+    // Rewrites every row of the credentials files whose password is not a PBKDF2 hash; returns how many
+    public static int migrate() throws IOException {
+        return migrate(STUDENT_FILE, 1) + migrate(PROFESSOR_FILE, 1) + migrate(ADMIN_FILE, 1) + migrate(USER_FILE, 2);
+    }
+
+    // Runs migrate() on a daemon thread
+    public static void migrateInBackground() {
+        Thread thread = new Thread(() -> {
+            try {
+                migrate();
+            } catch (IOException | RuntimeException e) {
+                e.printStackTrace();
+            }
+        }, "credential-migration");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // Hashing is slow on purpose, so it runs in parallel before the transaction; the transaction replaces
+    // only lines still as they were read, and a line changed meanwhile is left for the next run
+    private static int migrate(Path file, int column) throws IOException {
+        Map<String, String> replacements = new ConcurrentHashMap<>();
+        DataFiles.readLines(file).parallelStream().distinct().forEach(line -> {
+            String[] parts = line.split(",", -1);
+            if (parts.length <= column || isHashed(parts[column])) return;
+            parts[column] = migrate(parts[column]);
+            replacements.put(line, String.join(",", parts));
+        });
+        if (replacements.isEmpty()) return 0;
+
+        int[] migrated = {0};
+        new FileTransaction().update(file, lines -> {
+            List<String> updated = new ArrayList<>(lines.size());
+            for (String line : lines) {
+                String replacement = replacements.get(line);
+                if (replacement != null) migrated[0]++;
+                updated.add(replacement != null ? replacement : line);
+            }
+            return updated;
+        }).commit();
+        return migrated[0];
+    }
+
+    private static boolean matchesAny(List<String> stored, String password, BiPredicate<String, String> matcher) {
+        if (stored == null) return false;
+        for (String hash : stored) {
+            if (matcher.test(hash, password)) return true;
+        }
+        return false;
+    }
+
+    // fixedRole is null for users.txt, whose first column carries the role
+    private static Source source(Map<Path, Source> previous, Path file, String fixedRole) {
+        Source source = previous.get(file);
+        try {
+            long modified = Files.exists(file) ? Files.getLastModifiedTime(file).toMillis() : 0;
+            if (source == null || modified != source.modified) {
+                source = new Source(modified, load(file, fixedRole));
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            if (source == null) source = new Source(Long.MIN_VALUE, Collections.emptyMap());
+        }
+        return source;
+    }
+
+    private static Map<String, List<String>> load(Path file, String fixedRole) throws IOException {
+        Map<String, List<String>> entries = new HashMap<>();
+        if (!Files.exists(file)) return entries;
+        try (BufferedReader br = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                String[] parts = line.split(",");
+                String role, username, password;
+                if (fixedRole != null) {
+                    if (parts.length < 2) continue;
+                    role = fixedRole;
+                    username = parts[0];
+                    password = parts[1];
+                } else {
+                    if (parts.length < 3) continue;
+                    role = parts[0];
+                    username = parts[1];
+                    password = parts[2];
+                }
+                entries.computeIfAbsent(role + "," + username, k -> new ArrayList<>(1)).add(password);
+            }
+        }
+        return entries;
+    }
+
+    private static byte[] pbkdf2(String password, byte[] salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, HASH_BITS);
+        try {
+            return SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256").generateSecret(spec).getEncoded();
+        } catch (NoSuchAlgorithmException | InvalidKeySpecException e) {
+            throw new IllegalStateException(e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+
+    private static byte[] keyedDigest(String stored, String password) {
+        try {
+            MessageDigest sha = MessageDigest.getInstance("SHA-256");
+            sha.update(PROCESS_KEY);
+            sha.update(stored.getBytes(StandardCharsets.UTF_8));
+            return sha.digest(password.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        RANDOM.nextBytes(bytes);
+        return bytes;
+    }
+
+    private static byte[] digest(byte[] salt, String password) {
+        try {
+            MessageDigest sha = MessageDigest.getInstance("SHA-256");
+            sha.update(salt);
+            return sha.digest(password.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+
+    private static byte[] fromHex(String hex) {
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) Integer.parseInt(hex.substring(i * 2, i * 2 + 2), 16);
+        }
+        return bytes;
+    }
+
+    public static void main(String[] args) throws IOException {
+        FileTransaction.recoverAll();
+        System.out.println(migrate() + " password(s) migrated to PBKDF2");
+    }
+}
@@ -0,0 +1,38 @@
+package ui;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+
+// Small helpers shared by the classes that parse files in data/ and cache the result per file version
+final class DataFiles {
+    private DataFiles() {
+    }
+
+    // "modified millis:size", "-" for a missing file; a cache built from the file is stale when this changes
+    static String stamp(Path file) {
+        try {
+            return Files.exists(file) ? Files.getLastModifiedTime(file).toMillis() + ":" + Files.size(file) : "-";
+        } catch (IOException e) {
+            return "?";
+        }
+    }
+
+    // The file's lines, or none if it does not exist
+    static List<String> readLines(Path file) throws IOException {
+        if (!Files.exists(file)) return Collections.emptyList();
+        return Files.readAllLines(file, StandardCharsets.UTF_8);
+    }
+
+    // An ISO date, or null if the text is not one
+    static LocalDate parseDate(String text) {
+        try {
+            return LocalDate.parse(text.trim());
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+}
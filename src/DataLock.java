@@ -0,0 +1,75 @@
+package ui;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+
+// A lock shared by every process working on the same data/ directory: an OS lock on a lock file
+// (FileChannel.lock), held while any thread of this process holds the DataLock, plus a ReentrantLock so
+// threads of one process take turns and a holder may lock again. Only the lock matters; the file stays empty.
+// Usage: lock.lock(); try { ... } finally { lock.unlock(); }
+public final class DataLock {
+    private static final Map<Path, DataLock> locks = new HashMap<>();
+
+    private final Path file;
+    private final ReentrantLock local = new ReentrantLock();
+    private FileChannel channel;
+
+    private DataLock(Path file) {
+        this.file = file;
+    }
+
+    public static synchronized DataLock of(Path file) {
+        return locks.computeIfAbsent(file.toAbsolutePath().normalize(), DataLock::new);
+    }
+
+    // Blocks until no other thread or process holds the lock
+    public void lock() throws IOException {
+        local.lock();
+        if (local.getHoldCount() > 1) return;
+        try {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            channel.lock();
+        } catch (IOException | RuntimeException e) {
+            release();
+            throw e;
+        }
+    }
+
+    // Takes the lock only if no other thread or process holds it
+    public boolean tryLock() throws IOException {
+        if (!local.tryLock()) return false;
+        if (local.getHoldCount() > 1) return true;
+        try {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            if (channel.tryLock() != null) return true;
+        } catch (IOException | RuntimeException e) {
+            release();
+            throw e;
+        }
+        release();
+        return false;
+    }
+
+    public void unlock() {
+        if (local.getHoldCount() == 1) {
+            release();
+        } else {
+            local.unlock();
+        }
+    }
+
+    // Closing the channel drops the OS lock
+    private void release() {
+        try {
+            if (channel != null) channel.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            channel = null;
+            local.unlock();
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package ui;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javax.swing.*;
+
+// Watches data/ on a daemon thread and tells open dashboards which files changed, so they refresh
+// without the user clicking the sidebar again. Changes made by other processes are picked up too.
+// Processes that opt in with maintainAttendance() also raise alerts for new attendance, but only the one
+// holding data/.maintenance.lock does it; the lock is kept until that process exits, and another candidate
+// takes over on the next change after that.
+public final class DataWatcher {
+    private static final Path DATA_DIR = Paths.get("data");
+    private static final Path MAINTENANCE_LOCK = DATA_DIR.resolve(".maintenance.lock");
+    // Events arriving within this window are delivered as one refresh
+    private static final long COALESCE_MILLIS = 150;
+
+    private static DataWatcher shared;
+
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    // Maintenance runs on one thread, which also holds the maintenance lock once it gets it
+    private final ExecutorService maintenance = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "data-maintenance");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile boolean maintaining;
+    private boolean owner;
+
+    public final class Subscription {
+        private final Set<String> fileNames;
+        private final Runnable onChange;
+
+        private Subscription(Set<String> fileNames, Runnable onChange) {
+            this.fileNames = fileNames;
+            this.onChange = onChange;
+        }
+
+        public void cancel() {
+            subscriptions.remove(this);
+        }
+    }
+
+    public static synchronized DataWatcher shared() {
+        if (shared == null) {
+            shared = new DataWatcher();
+            shared.start();
+        }
+        return shared;
+    }
+
+    // onChange runs on the EDT after any of the named files in data/ changes
+    public Subscription subscribe(Runnable onChange, String... fileNames) {
+        Subscription subscription = new Subscription(new HashSet<>(Arrays.asList(fileNames)), onChange);
+        subscriptions.add(subscription);
+        return subscription;
+    }
+
+    // Makes this process a candidate to raise alerts for attendance saved by any process, starting with
+    // what was saved while no candidate ran
+    public synchronized void maintainAttendance() {
+        if (maintaining) return;
+        maintaining = true;
+        maintenance.execute(this::maintain);
+    }
+
+    private void start() {
+        if (!Files.isDirectory(DATA_DIR)) return;
+        Thread thread = new Thread(this::watch, "data-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void watch() {
+        try (WatchService service = FileSystems.getDefault().newWatchService()) {
+            DATA_DIR.register(service, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+            while (true) {
+                WatchKey key = service.take();
+                Set<String> changed = new HashSet<>();
+                collect(key, changed);
+                Thread.sleep(COALESCE_MILLIS);
+                while ((key = service.poll()) != null) {
+                    collect(key, changed);
+                }
+                dispatch(changed);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException | ClosedWatchServiceException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // Raises alerts for new attendance, off the EDT, if this process owns maintenance; only the appended
+    // lines are read
+    private void maintain() {
+        try {
+            if (!owner) owner = DataLock.of(MAINTENANCE_LOCK).tryLock();
+            if (owner) AttendanceAlerts.shared().refresh();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static void collect(WatchKey key, Set<String> changed) {
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                changed.add("*");
+            } else {
+                changed.add(((Path) event.context()).getFileName().toString());
+            }
+        }
+        key.reset();
+    }
+
+    private void dispatch(Set<String> changed) {
+        if (maintaining && (changed.contains("attendance.txt") || changed.contains("attendance_segments.txt")
+                || changed.contains("*"))) {
+            maintenance.execute(this::maintain);
+        }
+        for (Subscription subscription : subscriptions) {
+            if (changed.contains("*") || !Collections.disjoint(subscription.fileNames, changed)) {
+                SwingUtilities.invokeLater(() -> {
+                    if (subscriptions.contains(subscription)) subscription.onChange.run();
+                });
+            }
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package ui;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.function.UnaryOperator;
+
+// Crash-safe replacement of whole text files. Each file's new content goes to a temp file in the same
+// directory, is synced, and is moved over the original with ATOMIC_MOVE, so readers see either the
+// old or the new file and never a partial one, without taking any lock.
+// Transactions touching several files first write a journal, next to the first file, listing the
+// renames; recover() finishes a journal that was committed and discards one that was not.
+// Writers in every process take turns on a lock file in each directory they touch (DataLock), so one
+// process never reads a file another is about to replace. recover() is only for startup, before this
+// process writes anything; it takes the same lock, so it never touches a transaction still running.
+// Files that only ever grow on their own (holidays, alerts) use appendTo, an O_APPEND write that rewrites
+// nothing; rows that must land in several files together (new accounts) go through a transaction.
+public final class FileTransaction {
+    private static final String JOURNAL = ".transaction.journal";
+    private static final String LOCK = ".transaction.lock";
+    private static final String COMMIT_MARK = "commit";
+    private static final String TEMP_SUFFIX = ".tx";
+
+    private final Map<Path, UnaryOperator<List<String>>> updates = new LinkedHashMap<>();
+    // Files whose new content does not depend on the current one, so it is not read at commit time
+    private final Set<Path> replaced = new HashSet<>();
+
+    // The update receives the file's current lines (empty if missing) at commit time and returns the new lines
+    public FileTransaction update(Path file, UnaryOperator<List<String>> update) {
+        Path target = file.toAbsolutePath().normalize();
+        UnaryOperator<List<String>> previous = updates.get(target);
+        updates.put(target, previous == null ? update : lines -> update.apply(previous.apply(lines)));
+        return this;
+    }
+
+    public FileTransaction append(Path file, List<String> lines) {
+        if (lines.isEmpty()) return this;
+        return update(file, current -> {
+            List<String> result = new ArrayList<>(current);
+            result.addAll(lines);
+            return result;
+        });
+    }
+
+    public FileTransaction write(Path file, List<String> lines) {
+        replaced.add(file.toAbsolutePath().normalize());
+        return update(file, current -> lines);
+    }
+
+    public void commit() throws IOException {
+        if (updates.isEmpty()) return;
+        Set<Path> dirs = new LinkedHashSet<>();
+        for (Path target : updates.keySet()) {
+            dirs.add(target.getParent());
+        }
+        Path journal = dirs.iterator().next().resolve(JOURNAL);
+
+        // Directories are locked in sorted order so two transactions never wait on each other
+        List<DataLock> locks = new ArrayList<>();
+        for (Path dir : new TreeSet<>(dirs)) {
+            locks.add(DataLock.of(dir.resolve(LOCK)));
+        }
+        int locked = 0;
+        try {
+            for (DataLock lock : locks) {
+                lock.lock();
+                locked++;
+            }
+            Map<Path, Path> temps = new LinkedHashMap<>();
+            boolean journaled = false;
+            try {
+                for (Map.Entry<Path, UnaryOperator<List<String>>> entry : updates.entrySet()) {
+                    Path target = entry.getKey();
+                    List<String> current = !replaced.contains(target) && Files.exists(target)
+                            ? Files.readAllLines(target, StandardCharsets.UTF_8) : Collections.emptyList();
+                    Path temp = target.resolveSibling("." + target.getFileName() + "." + System.nanoTime() + TEMP_SUFFIX);
+                    temps.put(target, temp);
+                    writeSynced(temp, entry.getValue().apply(current));
+                }
+
+                if (temps.size() > 1) {
+                    List<String> lines = new ArrayList<>();
+                    for (Map.Entry<Path, Path> entry : temps.entrySet()) {
+                        lines.add(entry.getKey() + "|" + entry.getValue());
+                    }
+                    lines.add(COMMIT_MARK);
+                    writeSynced(journal, lines);
+                    syncDirectory(journal.getParent());
+                    journaled = true;
+                }
+                for (Map.Entry<Path, Path> entry : temps.entrySet()) {
+                    move(entry.getValue(), entry.getKey());
+                }
+                for (Path dir : dirs) {
+                    syncDirectory(dir);
+                }
+                Files.deleteIfExists(journal);
+            } catch (IOException | RuntimeException e) {
+                // Past the journal the transaction has committed; recover() completes the renames
+                if (journaled) throw e;
+                for (Path temp : temps.values()) {
+                    Files.deleteIfExists(temp);
+                }
+                throw e;
+            }
+        } finally {
+            for (int i = locked - 1; i >= 0; i--) {
+                locks.get(i).unlock();
+            }
+        }
+    }
+
+    // Appends the lines with a single O_APPEND write, so rows other processes append to the file are kept.
+    // For files that only grow; a crash can at worst leave a partial last line, which readers skip.
+    public static void appendTo(Path file, List<String> lines) throws IOException {
+        if (lines.isEmpty()) return;
+        Path target = file.toAbsolutePath().normalize();
+        DataLock lock = DataLock.of(target.getParent().resolve(LOCK));
+        lock.lock();
+        try (FileChannel channel = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND)) {
+            StringBuilder text = new StringBuilder();
+            // A file edited by hand may lack its last line break
+            if (channel.size() > 0 && !endsWithNewline(target, channel.size())) {
+                text.append(System.lineSeparator());
+            }
+            for (String line : lines) {
+                text.append(line).append(System.lineSeparator());
+            }
+            ByteBuffer buffer = StandardCharsets.UTF_8.encode(text.toString());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static boolean endsWithNewline(Path file, long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer last = ByteBuffer.allocate(1);
+            channel.read(last, size - 1);
+            return last.get(0) == '\n';
+        }
+    }
+
+    // Recovers data/ and then the working directory, which holds users.txt: a journal in data/ can list
+    // renames there, and rolling it forward first keeps them from being deleted as leftovers
+    public static void recoverAll() throws IOException {
+        recover(Paths.get("data"));
+        recover(Paths.get("").toAbsolutePath());
+    }
+
+    // Rolls a committed journal forward and removes temp files left by an interrupted transaction.
+    // Call it at startup only: temp files and journals found under the lock belong to a crashed writer.
+    public static void recover(Path dir) throws IOException {
+        if (!Files.isDirectory(dir)) return;
+        DataLock lock = DataLock.of(dir.resolve(LOCK));
+        lock.lock();
+        try {
+            Path journal = dir.resolve(JOURNAL);
+            if (Files.exists(journal)) {
+                List<String> lines = Files.readAllLines(journal, StandardCharsets.UTF_8);
+                if (!lines.isEmpty() && lines.get(lines.size() - 1).equals(COMMIT_MARK)) {
+                    for (String line : lines.subList(0, lines.size() - 1)) {
+                        int split = line.lastIndexOf('|');
+                        Path target = Paths.get(line.substring(0, split));
+                        Path temp = Paths.get(line.substring(split + 1));
+                        if (Files.exists(temp)) {
+                            move(temp, target);
+                            syncDirectory(target.getParent());
+                        }
+                    }
+                }
+                Files.delete(journal);
+            }
+            try (DirectoryStream<Path> leftovers = Files.newDirectoryStream(dir, ".*" + TEMP_SUFFIX)) {
+                for (Path temp : leftovers) {
+                    Files.deleteIfExists(temp);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static void writeSynced(Path file, List<String> lines) throws IOException {
+        StringBuilder text = new StringBuilder();
+        for (String line : lines) {
+            text.append(line).append(System.lineSeparator());
+        }
+        ByteBuffer buffer = StandardCharsets.UTF_8.encode(text.toString());
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+    }
+
+    private static void move(Path temp, Path target) throws IOException {
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    // Makes the renames durable; not supported on every platform, where the rename itself has to do
+    private static void syncDirectory(Path dir) {
+        try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // e.g. Windows cannot open a directory as a channel
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package ui;
+
+import java.io.*;
+import java.nio.file.*;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.*;
+
+// Holidays and working-day overrides shared by the dashboards.
+// Each year is held as two bitsets (one bit per day of the year), so isHoliday and isWorkingDay
+// are a map lookup and a bit test. Sources: holidays.txt ("name,date"), and working_days.txt /
+// weekend_overrides.txt ("date,DAY" - the date runs DAY's timetable).
+public final class HolidayCalendar {
+    private static final Path HOLIDAY_FILE = Paths.get("data/holidays.txt");
+    private static final Path WORKING_DAYS_FILE = Paths.get("data/working_days.txt");
+    private static final Path WEEKEND_OVERRIDES_FILE = Paths.get("data/weekend_overrides.txt");
+
+    private static final int WORDS_PER_YEAR = 6; // 384 bits >= 366 days
+
+    private static HolidayCalendar shared;
+    private static String sharedStamp;
+
+    private final Map<Integer, long[]> holidayBits = new HashMap<>();
+    private final Map<Integer, long[]> overrideBits = new HashMap<>();
+    private final Map<LocalDate, List<String>> holidayNames = new HashMap<>();
+    private final Map<LocalDate, DayOfWeek> overrideDays = new HashMap<>();
+
+    // Reloaded only when one of the source files changes; callers get an immutable snapshot
+    public static synchronized HolidayCalendar shared() {
+        String stamp = DataFiles.stamp(HOLIDAY_FILE) + "/" + DataFiles.stamp(WORKING_DAYS_FILE) + "/"
+                + DataFiles.stamp(WEEKEND_OVERRIDES_FILE);
+        if (shared == null || !stamp.equals(sharedStamp)) {
+            HolidayCalendar calendar = new HolidayCalendar();
+            try {
+                calendar.loadHolidays(HOLIDAY_FILE);
+                calendar.loadOverrides(WORKING_DAYS_FILE);
+                calendar.loadOverrides(WEEKEND_OVERRIDES_FILE);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            shared = calendar;
+            sharedStamp = stamp;
+        }
+        return shared;
+    }
+
+    public boolean isHoliday(LocalDate date) {
+        return test(holidayBits, date);
+    }
+
+    // Weekdays are working days unless declared a holiday; weekends only through an override
+    public boolean isWorkingDay(LocalDate date) {
+        if (isHoliday(date)) return false;
+        return !isWeekend(date) || test(overrideBits, date);
+    }
+
+    // Weekday whose timetable runs on the date, or null when no classes are held
+    public DayOfWeek scheduleDay(LocalDate date) {
+        if (!isWorkingDay(date)) return null;
+        if (test(overrideBits, date)) return overrideDays.get(date);
+        return date.getDayOfWeek();
+    }
+
+    public boolean isDeclared(String name, LocalDate date) {
+        for (String existing : holidayNames.getOrDefault(date, Collections.emptyList())) {
+            if (existing.equalsIgnoreCase(name)) return true;
+        }
+        return false;
+    }
+
+    public Set<LocalDate> getHolidays() {
+        return Collections.unmodifiableSet(holidayNames.keySet());
+    }
+
+    public Map<LocalDate, DayOfWeek> getOverrides() {
+        return Collections.unmodifiableMap(overrideDays);
+    }
+
+    private void loadHolidays(Path file) throws IOException {
+        for (String line : DataFiles.readLines(file)) {
+            String[] parts = line.split(",");
+            if (parts.length != 2) continue;
+            LocalDate date = DataFiles.parseDate(parts[1]);
+            if (date == null) continue;
+            set(holidayBits, date);
+            holidayNames.computeIfAbsent(date, d -> new ArrayList<>(1)).add(parts[0].trim());
+        }
+    }
+
+    private void loadOverrides(Path file) throws IOException {
+        for (String line : DataFiles.readLines(file)) {
+            String[] parts = line.split(",");
+            if (parts.length < 2) continue;
+            LocalDate date = DataFiles.parseDate(parts[0]);
+            DayOfWeek day = Timetable.parseDay(parts[1].trim());
+            if (date == null || day == null) continue;
+            set(overrideBits, date);
+            overrideDays.put(date, day);
+        }
+    }
+
+    private static boolean isWeekend(LocalDate date) {
+        DayOfWeek day = date.getDayOfWeek();
+        return day == DayOfWeek.SATURDAY || day == DayOfWeek.SUNDAY;
+    }
+
+    private static void set(Map<Integer, long[]> bits, LocalDate date) {
+        int bit = date.getDayOfYear() - 1;
+        bits.computeIfAbsent(date.getYear(), y -> new long[WORDS_PER_YEAR])[bit >>> 6] |= 1L << bit;
+    }
+
+    private static boolean test(Map<Integer, long[]> bits, LocalDate date) {
+        long[] year = bits.get(date.getYear());
+        if (year == null) return false;
+        int bit = date.getDayOfYear() - 1;
+        return (year[bit >>> 6] & (1L << bit)) != 0;
+    }
+}
@@ -0,0 +1,250 @@
+package ui;
+
+import java.io.*;
+import java.nio.file.*;
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.Consumer;
+
+// Attendance in an embedded database (H2 or SQLite in file mode; the driver is not bundled).
+// One table, a unique index on (student, course, day) that also serves the per-student lookups and
+// history, and an index on (course, day) used for course history and to find who is already recorded.
+// The unique index keeps one mark per key; a later write of a key updates it (see AttendanceStore).
+// Usage: JdbcAttendanceStore <jdbc url> [attendance.txt]   imports a text log
+public final class JdbcAttendanceStore implements AttendanceStore {
+    private static final int BATCH_SIZE = 1000;
+    private static final int IMPORT_CHUNK = 50_000;
+
+    private static final Map<String, JdbcAttendanceStore> shared = new HashMap<>();
+
+    private final Connection connection;
+    private final PreparedStatement countsStatement;
+    private final PreparedStatement recordedStatement;
+    private final PreparedStatement insertStatement;
+    private final PreparedStatement updateStatement;
+    private final PreparedStatement courseHistoryStatement;
+    private final PreparedStatement studentHistoryStatement;
+
+    private JdbcAttendanceStore(Connection connection) throws SQLException {
+        this.connection = connection;
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate("CREATE TABLE IF NOT EXISTS attendance ("
+                    + "student VARCHAR(64) NOT NULL, "
+                    + "course VARCHAR(16) NOT NULL, "
+                    + "epoch_day INTEGER NOT NULL, "
+                    + "date_text VARCHAR(32) NOT NULL, "
+                    + "present SMALLINT NOT NULL)");
+            statement.executeUpdate("CREATE UNIQUE INDEX IF NOT EXISTS attendance_student_course "
+                    + "ON attendance (student, course, epoch_day)");
+            statement.executeUpdate("CREATE INDEX IF NOT EXISTS attendance_course_day ON attendance (course, epoch_day)");
+        }
+        countsStatement = connection.prepareStatement(
+                "SELECT COALESCE(SUM(present), 0), COUNT(*), MAX(epoch_day) FROM attendance WHERE student = ? AND course = ?");
+        recordedStatement = connection.prepareStatement(
+                "SELECT student, present FROM attendance WHERE course = ? AND epoch_day = ?");
+        insertStatement = connection.prepareStatement(
+                "INSERT INTO attendance (student, course, epoch_day, date_text, present) VALUES (?, ?, ?, ?, ?)");
+        updateStatement = connection.prepareStatement(
+                "UPDATE attendance SET date_text = ?, present = ? WHERE student = ? AND course = ? AND epoch_day = ?");
+        courseHistoryStatement = connection.prepareStatement("SELECT student, date_text, course, present FROM attendance "
+                + "WHERE course = ? AND epoch_day BETWEEN ? AND ? ORDER BY epoch_day, student");
+        studentHistoryStatement = connection.prepareStatement("SELECT student, date_text, course, present FROM attendance "
+                + "WHERE student = ? AND epoch_day BETWEEN ? AND ? ORDER BY epoch_day, course");
+    }
+
+    public static synchronized JdbcAttendanceStore shared(String url) throws IOException {
+        JdbcAttendanceStore store = shared.get(url);
+        if (store == null) {
+            store = open(url);
+            shared.put(url, store);
+        }
+        return store;
+    }
+
+    public static JdbcAttendanceStore open(String url) throws IOException {
+        try {
+            return new JdbcAttendanceStore(DriverManager.getConnection(url));
+        } catch (SQLException e) {
+            throw new IOException("Cannot open attendance database " + url, e);
+        }
+    }
+
+    @Override
+    public synchronized AttendanceIndex.Counts counts(String student, String course) throws IOException {
+        try {
+            countsStatement.setString(1, student);
+            countsStatement.setString(2, course);
+            try (ResultSet rs = countsStatement.executeQuery()) {
+                if (!rs.next() || rs.getInt(2) == 0) return AttendanceIndex.Counts.EMPTY;
+                int attended = rs.getInt(1);
+                int recorded = rs.getInt(2);
+                int lastDay = rs.getInt(3);
+                return new AttendanceIndex.Counts(attended, recorded - attended,
+                        rs.wasNull() ? null : LocalDate.ofEpochDay(lastDay));
+            }
+        } catch (SQLException e) {
+            throw new IOException(e);
+        }
+    }
+
+    @Override
+    public synchronized List<AttendanceRecord> courseHistory(String course, LocalDate from, LocalDate to) throws IOException {
+        return history(courseHistoryStatement, course, from, to);
+    }
+
+    @Override
+    public synchronized List<AttendanceRecord> studentHistory(String student, LocalDate from, LocalDate to) throws IOException {
+        return history(studentHistoryStatement, student, from, to);
+    }
+
+    private static List<AttendanceRecord> history(PreparedStatement statement, String key, LocalDate from, LocalDate to)
+            throws IOException {
+        List<AttendanceRecord> records = new ArrayList<>();
+        try {
+            statement.setString(1, key);
+            statement.setInt(2, (int) from.toEpochDay());
+            statement.setInt(3, (int) to.toEpochDay());
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    records.add(new AttendanceRecord(rs.getString(1), rs.getString(2), rs.getString(3), rs.getInt(4) == 1));
+                }
+            }
+        } catch (SQLException e) {
+            throw new IOException(e);
+        }
+        return records;
+    }
+
+    // One transaction: the marks already recorded for each (course, day) in the batch are read through the
+    // (course, day) index; new keys go in as batched inserts, changed marks as batched updates, and records
+    // repeating the recorded mark are skipped. Inserts run before updates, which may change a row they add.
+    @Override
+    public synchronized int append(List<AttendanceRecord> records) throws IOException {
+        Map<String, Map<String, Boolean>> recorded = new HashMap<>();
+        int written = 0;
+        int inserts = 0;
+        int updates = 0;
+        try {
+            connection.setAutoCommit(false);
+            try {
+                for (AttendanceRecord record : records) {
+                    int day = record.getEpochDay();
+                    if (day == AttendanceColumns.NO_DAY) continue;
+
+                    String group = record.getCourse() + "|" + day;
+                    Map<String, Boolean> marks = recorded.get(group);
+                    if (marks == null) {
+                        marks = recordedMarks(record.getCourse(), day);
+                        recorded.put(group, marks);
+                    }
+                    Boolean previous = marks.put(record.getStudent(), record.isPresent());
+                    if (previous != null && previous == record.isPresent()) continue;
+
+                    if (previous == null) {
+                        insertStatement.setString(1, record.getStudent());
+                        insertStatement.setString(2, record.getCourse());
+                        insertStatement.setInt(3, day);
+                        insertStatement.setString(4, record.getDate());
+                        insertStatement.setInt(5, record.isPresent() ? 1 : 0);
+                        insertStatement.addBatch();
+                        inserts++;
+                    } else {
+                        updateStatement.setString(1, record.getDate());
+                        updateStatement.setInt(2, record.isPresent() ? 1 : 0);
+                        updateStatement.setString(3, record.getStudent());
+                        updateStatement.setString(4, record.getCourse());
+                        updateStatement.setInt(5, day);
+                        updateStatement.addBatch();
+                        updates++;
+                    }
+                    written++;
+                    if (inserts == BATCH_SIZE || updates == BATCH_SIZE) {
+                        executeBatches(inserts, updates);
+                        inserts = 0;
+                        updates = 0;
+                    }
+                }
+                executeBatches(inserts, updates);
+                connection.commit();
+            } catch (SQLException e) {
+                insertStatement.clearBatch();
+                updateStatement.clearBatch();
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            throw new IOException("Error saving attendance", e);
+        }
+        return written;
+    }
+
+    private void executeBatches(int inserts, int updates) throws SQLException {
+        if (inserts > 0) insertStatement.executeBatch();
+        if (updates > 0) updateStatement.executeBatch();
+    }
+
+    // student -> present for everyone recorded for the course on that day
+    private Map<String, Boolean> recordedMarks(String course, int day) throws SQLException {
+        Map<String, Boolean> marks = new HashMap<>();
+        recordedStatement.setString(1, course);
+        recordedStatement.setInt(2, day);
+        try (ResultSet rs = recordedStatement.executeQuery()) {
+            while (rs.next()) {
+                marks.put(rs.getString(1), rs.getInt(2) == 1);
+            }
+        }
+        return marks;
+    }
+
+    // Copies a text log and its compacted segments into the database, in write order, so the database ends
+    // up with the same latest marks; it can be re-run
+    public int importLog(Path log) throws IOException {
+        int[] written = {0};
+        List<AttendanceRecord> chunk = new ArrayList<>();
+        Consumer<String> collect = line -> {
+            AttendanceRecord record = AttendanceRecord.parse(line);
+            if (record == null) return;
+            chunk.add(record);
+            if (chunk.size() == IMPORT_CHUNK) {
+                try {
+                    written[0] += append(chunk);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                chunk.clear();
+            }
+        };
+        try {
+            AttendanceSegments.of(log).scan(collect);
+            LogTail.readFrom(log, 0, collect);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return written[0] + append(chunk);
+    }
+
+    public synchronized void close() throws IOException {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            throw new IOException(e);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1 || args.length > 2) {
+            System.err.println("Usage: JdbcAttendanceStore <jdbc url> [attendance.txt]");
+            System.exit(1);
+        }
+        JdbcAttendanceStore store = open(args[0]);
+        try {
+            Path log = Paths.get(args.length == 2 ? args[1] : "data/attendance.txt");
+            System.out.println("Imported " + store.importLog(log) + " rows from " + log);
+        } finally {
+            store.close();
+        }
+    }
+}
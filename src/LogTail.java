@@ -0,0 +1,82 @@
+package ui;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+// Reads the complete lines appended to a text log after a known byte offset
+public final class LogTail {
+    public interface LineVisitor {
+        // start is the offset of the line's first byte, length its size in bytes including the line break
+        void visit(long start, int length, String line);
+    }
+
+    private LogTail() {
+    }
+
+    // Feeds every complete line from offset onwards to the consumer and returns the offset just past
+    // the last newline, so a line still being written is picked up by the next call
+    public static long readFrom(Path file, long offset, Consumer<String> consumer) throws IOException {
+        return readFrom(file, offset, Long.MAX_VALUE, consumer);
+    }
+
+    // Same, but stops at limit, which should be a line boundary returned by an earlier call
+    public static long readFrom(Path file, long offset, long limit, Consumer<String> consumer) throws IOException {
+        return readFrom(file, offset, limit, (start, length, line) -> consumer.accept(line));
+    }
+
+    // Same, also passing where each line sits in the file
+    public static long readFrom(Path file, long offset, long limit, LineVisitor visitor) throws IOException {
+        if (!Files.exists(file)) return offset;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = Math.min(channel.size(), limit);
+            if (offset >= size) return offset;
+
+            ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+            ByteArrayOutputStream line = new ByteArrayOutputStream();
+            long position = offset;
+            long consumed = offset;
+            while (position < size) {
+                buffer.clear();
+                buffer.limit((int) Math.min(buffer.capacity(), size - position));
+                int read = channel.read(buffer, position);
+                if (read <= 0) break;
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    byte b = buffer.get();
+                    position++;
+                    if (b == '\n') {
+                        String text = line.toString(StandardCharsets.UTF_8);
+                        if (text.endsWith("\r")) text = text.substring(0, text.length() - 1);
+                        visitor.visit(consumed, (int) (position - consumed), text);
+                        line.reset();
+                        consumed = position;
+                    } else {
+                        line.write(b);
+                    }
+                }
+            }
+            return consumed;
+        }
+    }
+
+    // CRC32 of up to 4 KB immediately before offset; a different value means the log was rewritten
+    public static long checksumBefore(Path file, long offset) throws IOException {
+        CRC32 crc = new CRC32();
+        if (offset <= 0 || !Files.exists(file)) return crc.getValue();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long from = Math.max(0, offset - 4096);
+            ByteBuffer buffer = ByteBuffer.allocate((int) (offset - from));
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, from + buffer.position()) < 0) break;
+            }
+            buffer.flip();
+            crc.update(buffer);
+        }
+        return crc.getValue();
+    }
+}
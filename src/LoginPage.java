@@ -2,12 +2,17 @@ package ui;
 
 import java.awt.*;
 import java.awt.event.*;
-import java.io.*;
+import java.io.IOException;
+import java.util.*;
+import java.util.List;
 import javax.swing.*;
 
 public class LoginPage extends JFrame {
 
     private boolean darkMode = false;
+    private final BackgroundLoader loader = new BackgroundLoader();
+    // Disabled while a login is being checked
+    private final List<JButton> roleButtons = new ArrayList<>();
 
     public LoginPage() {
         setTitle("Attendance System - Login");
@@ -82,6 +87,9 @@ public class LoginPage extends JFrame {
         buttonPanel.add(studentBtn);
         buttonPanel.add(professorBtn);
         buttonPanel.add(adminBtn);
+        roleButtons.add(studentBtn);
+        roleButtons.add(professorBtn);
+        roleButtons.add(adminBtn);
         backgroundPanel.add(buttonPanel, BorderLayout.CENTER);
 
         studentBtn.addActionListener(e -> showLoginDialog("Student"));
@@ -132,28 +140,7 @@ public class LoginPage extends JFrame {
     }
 
     public boolean validateLogin(String role, String username, String password) {
-        String filename = switch (role) {
-            case "Student" -> "students.txt";
-            case "Professor" -> "professors.txt";
-            case "Admin" -> "admin.txt";
-            default -> null;
-        };
-
-        if (filename == null) return false;
-
-        try (BufferedReader br = new BufferedReader(new FileReader("data/" + filename))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                String[] parts = line.split(",");
-                if (parts.length >= 2 && parts[0].equals(username) && parts[1].equals(password)) {
-                    return true;
-                }
-            }
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-
-        return false;
+        return CredentialRegistry.shared().validate(role, username, password);
     }
 
     private void showLoginDialog(String role) {
@@ -178,20 +165,44 @@ public class LoginPage extends JFrame {
             String username = usernameField.getText();
             String password = new String(passwordField.getPassword());
 
-            if (validateLogin(role, username, password)) {
-                dispose();
-                switch (role) {
-                    case "Student" -> new StudentDashboard(username);
-                    case "Professor" -> new ProfessorDashboard(username).setVisible(true);
-                    case "Admin" -> new AdminDashboard();
+            // PBKDF2 takes a noticeable fraction of a second, so the check runs off the EDT
+            setLoggingIn(true);
+            loader.run(() -> validateLogin(role, username, password), valid -> {
+                setLoggingIn(false);
+                if (valid) {
+                    dispose();
+                    switch (role) {
+                        case "Student" -> new StudentDashboard(username);
+                        case "Professor" -> new ProfessorDashboard(username).setVisible(true);
+                        case "Admin" -> new AdminDashboard();
+                    }
+                } else {
+                    JOptionPane.showMessageDialog(this, "Invalid credentials!", "Login Failed", JOptionPane.ERROR_MESSAGE);
                 }
-            } else {
-                JOptionPane.showMessageDialog(this, "Invalid credentials!", "Login Failed", JOptionPane.ERROR_MESSAGE);
-            }
+            }, ex -> {
+                ex.printStackTrace();
+                setLoggingIn(false);
+                JOptionPane.showMessageDialog(this, "Could not check the login.", "Login Failed", JOptionPane.ERROR_MESSAGE);
+            });
+        }
+    }
+
+    private void setLoggingIn(boolean busy) {
+        for (JButton button : roleButtons) {
+            button.setEnabled(!busy);
         }
+        setCursor(busy ? Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR) : Cursor.getDefaultCursor());
     }
 
     public static void main(String[] args) {
+        // Finish or discard a multi-file update interrupted by a crash before anything reads data/ or users.txt
+        try {
+            FileTransaction.recoverAll();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        // Plaintext and SHA-256 passwords left in the files are rehashed with PBKDF2
+        CredentialRegistry.migrateInBackground();
         SwingUtilities.invokeLater(LoginPage::new);
     }
 }
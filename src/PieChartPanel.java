@@ -0,0 +1,103 @@
+package ui;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import javax.swing.*;
+
+// One course's attended/missed pie with its legend. The chart is drawn once into an off-screen image at the
+// component's size and the screen scale; paints just copy that image, and it is redrawn only when the counts,
+// the title or the size change.
+public final class PieChartPanel extends JComponent {
+    private String title;
+    private int attended;
+    private int missed;
+    private BufferedImage image;
+    // What the image was drawn for, compared field by field so a paint that reuses it allocates nothing
+    private String imageTitle;
+    private int imageAttended;
+    private int imageMissed;
+    private int imageWidth;
+    private int imageHeight;
+    private double imageScale;
+
+    public PieChartPanel(String title, int attended, int missed) {
+        this.title = title;
+        this.attended = attended;
+        this.missed = missed;
+        setOpaque(false);
+        setPreferredSize(new Dimension(250, 250));
+    }
+
+    // Repaints only if a value changed
+    public void setCounts(String title, int attended, int missed) {
+        if (title.equals(this.title) && attended == this.attended && missed == this.missed) return;
+        this.title = title;
+        this.attended = attended;
+        this.missed = missed;
+        repaint();
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        int width = getWidth();
+        int height = getHeight();
+        if (width <= 0 || height <= 0) return;
+
+        double scale = ((Graphics2D) g).getTransform().getScaleX();
+        if (image == null || imageTitle != title || imageAttended != attended || imageMissed != missed
+                || imageWidth != width || imageHeight != height || imageScale != scale) {
+            image = render(width, height, scale);
+            imageTitle = title;
+            imageAttended = attended;
+            imageMissed = missed;
+            imageWidth = width;
+            imageHeight = height;
+            imageScale = scale;
+        }
+        g.drawImage(image, 0, 0, width, height, null);
+    }
+
+    private BufferedImage render(int width, int height, double scale) {
+        int pixelWidth = (int) Math.ceil(width * scale);
+        int pixelHeight = (int) Math.ceil(height * scale);
+        GraphicsConfiguration config = getGraphicsConfiguration();
+        BufferedImage rendered = config != null
+                ? config.createCompatibleImage(pixelWidth, pixelHeight, Transparency.TRANSLUCENT)
+                : new BufferedImage(pixelWidth, pixelHeight, BufferedImage.TYPE_INT_ARGB);
+
+        Graphics2D g2 = rendered.createGraphics();
+        try {
+            g2.scale(scale, scale);
+            g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g2.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            g2.setFont(getFont() != null ? getFont() : UIManager.getFont("Label.font"));
+
+            int total = attended + missed;
+            if (total == 0) return rendered;
+
+            int attendedAngle = (int) Math.round((attended / (double) total) * 360);
+            int missedAngle = 360 - attendedAngle;
+
+            // Draw Pie
+            g2.setColor(Color.GREEN);
+            g2.fillArc(20, 40, 150, 150, 0, attendedAngle);
+            g2.setColor(Color.RED);
+            g2.fillArc(20, 40, 150, 150, attendedAngle, missedAngle);
+
+            // Draw legend
+            g2.setColor(Color.BLACK);
+            g2.drawString(title, 20, 20);
+            g2.setColor(Color.GREEN);
+            g2.fillRect(180, 60, 10, 10);
+            g2.setColor(Color.BLACK);
+            g2.drawString("Attended: " + attended, 200, 70);
+            g2.setColor(Color.RED);
+            g2.fillRect(180, 90, 10, 10);
+            g2.setColor(Color.BLACK);
+            g2.drawString("Missed: " + missed, 200, 100);
+        } finally {
+            g2.dispose();
+        }
+        return rendered;
+    }
+}
@@ -4,20 +4,48 @@ import java.awt.*;
 import java.io.*;
 import java.nio.file.*;
 import java.text.SimpleDateFormat;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
 import java.util.*;
 import java.util.List;
 import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.table.DefaultTableModel;
+import javax.swing.table.TableRowSorter;
 
 public class ProfessorDashboard extends JFrame {
-    private List<JCheckBox> checkBoxes = new ArrayList<>();
+    private final RosterTableModel rosterModel = new RosterTableModel();
+    private final BackgroundLoader loader = new BackgroundLoader();
+    private DataWatcher.Subscription rosterSubscription;
+    private DataWatcher.Subscription alertSubscription;
 
     private String username;
-    private String courseCode;
+    private String courseCode = "Loading...";
+    private JLabel title;
+    private JLabel presentLabel;
+    private JTextArea alertArea;
+    private JTextField historyFromField, historyToField, historyStudentField;
+    private DefaultTableModel historyModel;
+    private JLabel historyStatus;
+    private JButton submitBtn;
 
     public ProfessorDashboard(String username) {
         this.username = username;
-        this.courseCode = getCourseForProfessor(username);
         setupUI();
+        loadRoster();
+        rosterSubscription = DataWatcher.shared().subscribe(this::loadRoster,
+                "students.txt", "professors.txt", "holidays.txt", "working_days.txt", "weekend_overrides.txt");
+        alertSubscription = DataWatcher.shared().subscribe(this::loadAlerts, "alerts.txt");
+        DataWatcher.shared().maintainAttendance();
+    }
+
+    @Override
+    public void dispose() {
+        rosterSubscription.cancel();
+        alertSubscription.cancel();
+        loader.cancelAll();
+        super.dispose();
     }
 
     private void setupUI() {
@@ -35,12 +63,14 @@ public class ProfessorDashboard extends JFrame {
         header.setFont(new Font("Arial", Font.BOLD, 20));
         add(header, BorderLayout.NORTH);
 
-        JPanel buttonPanel = new JPanel(new GridLayout(1, 3, 10, 10));
+        JPanel buttonPanel = new JPanel(new GridLayout(1, 5, 10, 10));
         JButton dashboardBtn = new JButton("Dashboard");
+        JButton historyBtn = new JButton("History");
         JButton scheduleBtn = new JButton("Schedule");
+        JButton alertsBtn = new JButton("Alerts");
         JButton logoutBtn = new JButton("Logout");
 
-        for (JButton btn : Arrays.asList(dashboardBtn, scheduleBtn)) {
+        for (JButton btn : Arrays.asList(dashboardBtn, historyBtn, scheduleBtn, alertsBtn)) {
             btn.setBackground(Color.decode("#2563EB"));
             btn.setForeground(Color.WHITE);
             btn.setFocusPainted(false);
@@ -57,119 +87,280 @@ public class ProfessorDashboard extends JFrame {
         add(buttonPanel, BorderLayout.SOUTH);
 
         JPanel contentPanel = new JPanel(new CardLayout());
-        JScrollPane dashboardPanel = createDashboardPanel();
+        JPanel dashboardPanel = createDashboardPanel();
         JScrollPane schedulePanel = createSchedulePanel();
         contentPanel.add(dashboardPanel, "Dashboard");
         contentPanel.add(schedulePanel, "Schedule");
+        contentPanel.add(createHistoryPanel(), "History");
+        alertArea = new JTextArea();
+        alertArea.setEditable(false);
+        alertArea.setFont(new Font("Monospaced", Font.PLAIN, 13));
+        contentPanel.add(new JScrollPane(alertArea), "Alerts");
 
         add(contentPanel, BorderLayout.CENTER);
 
         CardLayout cl = (CardLayout) contentPanel.getLayout();
 
-        dashboardBtn.addActionListener(e -> cl.show(contentPanel, "Dashboard"));
-        scheduleBtn.addActionListener(e -> cl.show(contentPanel, "Schedule"));
+        dashboardBtn.addActionListener(e -> {
+            loader.showing("Dashboard");
+            cl.show(contentPanel, "Dashboard");
+            loadRoster();
+        });
+        historyBtn.addActionListener(e -> {
+            loader.showing("History");
+            cl.show(contentPanel, "History");
+            loadHistory();
+        });
+        scheduleBtn.addActionListener(e -> {
+            loader.showing("Schedule");
+            cl.show(contentPanel, "Schedule");
+        });
+        alertsBtn.addActionListener(e -> {
+            loader.showing("Alerts");
+            cl.show(contentPanel, "Alerts");
+            loadAlerts();
+        });
         logoutBtn.addActionListener(e -> {
             dispose();
             new LoginPage().setVisible(true);
         });
     }
 
-    private JScrollPane createDashboardPanel() {
+    // The roster is a table over RosterTableModel, so only the visible rows are painted whatever the course size
+    private JPanel createDashboardPanel() {
         JPanel panel = new JPanel(new BorderLayout());
-        JLabel title = new JLabel("Mark Attendance for Course: " + courseCode, SwingConstants.CENTER);
+        title = new JLabel("Mark Attendance for Course: " + courseCode, SwingConstants.CENTER);
         title.setFont(new Font("Arial", Font.BOLD, 16));
-        panel.add(title, BorderLayout.NORTH);
 
-        JPanel studentPanel = new JPanel();
-        studentPanel.setLayout(new BoxLayout(studentPanel, BoxLayout.Y_AXIS));
+        JTextField searchField = new JTextField(14);
+        JButton allBtn = new JButton("All");
+        JButton noneBtn = new JButton("None");
+        JButton invertBtn = new JButton("Invert");
+        JPanel toolbar = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        toolbar.add(new JLabel("Search:"));
+        toolbar.add(searchField);
+        for (JButton btn : Arrays.asList(allBtn, noneBtn, invertBtn)) {
+            btn.setBackground(Color.LIGHT_GRAY);
+            btn.setForeground(Color.BLACK);
+            btn.setFocusPainted(false);
+            toolbar.add(btn);
+        }
 
-        List<String> students = getStudentsInCourse(courseCode);
-        checkBoxes.clear();
+        JPanel top = new JPanel(new BorderLayout());
+        top.add(title, BorderLayout.NORTH);
+        top.add(toolbar, BorderLayout.SOUTH);
+        panel.add(top, BorderLayout.NORTH);
+
+        JTable rosterTable = new JTable(rosterModel);
+        rosterTable.setFont(new Font("Arial", Font.PLAIN, 14));
+        rosterTable.setRowHeight(22);
+        rosterTable.getColumnModel().getColumn(RosterTableModel.PRESENT).setMaxWidth(70);
+        TableRowSorter<RosterTableModel> sorter = new TableRowSorter<>(rosterModel);
+        rosterTable.setRowSorter(sorter);
+        panel.add(new JScrollPane(rosterTable), BorderLayout.CENTER);
+
+        // Case-insensitive name match; the filter only hides rows, marks on hidden students are kept
+        searchField.getDocument().addDocumentListener(new DocumentListener() {
+            private void filter() {
+                String query = searchField.getText().trim().toLowerCase();
+                sorter.setRowFilter(query.isEmpty() ? null : new RowFilter<RosterTableModel, Integer>() {
+                    @Override
+                    public boolean include(Entry<? extends RosterTableModel, ? extends Integer> entry) {
+                        return entry.getStringValue(RosterTableModel.STUDENT).toLowerCase().contains(query);
+                    }
+                });
+            }
 
-       
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                filter();
+            }
 
-        for (String student : students) {
-            JCheckBox checkBox = new JCheckBox(student);
-            checkBox.setFont(new Font("Arial", Font.PLAIN, 14));
-            studentPanel.add(checkBox);
-            checkBoxes.add(checkBox);
-        }
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                filter();
+            }
 
-        JButton submitBtn = new JButton("Submit Attendance");
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                filter();
+            }
+        });
+        // Bulk changes apply to the students the search shows; hidden students keep their marks
+        allBtn.addActionListener(e -> rosterModel.setPresent(shownRows(rosterTable), true));
+        noneBtn.addActionListener(e -> rosterModel.setPresent(shownRows(rosterTable), false));
+        invertBtn.addActionListener(e -> rosterModel.invert(shownRows(rosterTable)));
+
+        submitBtn = new JButton("Submit Attendance");
         submitBtn.setBackground(Color.decode("#2563EB"));
         submitBtn.setForeground(Color.WHITE);
         submitBtn.setAlignmentX(Component.CENTER_ALIGNMENT);
-
-        
+        submitBtn.setEnabled(false);
 
         submitBtn.addActionListener(e -> {
+            if (rosterTable.isEditing()) rosterTable.getCellEditor().stopCellEditing();
             String currentDate = new SimpleDateFormat("yyyy-MM-dd (EEEE)").format(new Date());
-            Set<String> selectedStudents = new HashSet<>();
-            for (JCheckBox cb : checkBoxes) {
-                if (cb.isSelected()) {
-                    selectedStudents.add(cb.getText());
-                }
-            }
-
-            Path path = Paths.get("data/attendance.txt");
-            Set<String> existingEntries = new HashSet<>();
-
-            if (Files.exists(path)) {
-                try (BufferedReader reader = Files.newBufferedReader(path)) {
-                    String line;
-                    while ((line = reader.readLine()) != null) {
-                        String[] parts = line.split("\\|");
-                        if (parts.length >= 3) {
-                            existingEntries.add(parts[0] + "|" + parts[1] + "|" + parts[2]);
-                        }
-                    }
-                } catch (IOException ex) {
-                    ex.printStackTrace();
-                }
-            }
-
-            try (BufferedWriter writer = Files.newBufferedWriter(path, StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
-                for (String student : students) {
-                    String entryKey = student + "|" + currentDate + "|" + courseCode;
-                    if (!existingEntries.contains(entryKey)) {
-                        int present = selectedStudents.contains(student) ? 1 : 0;
-                        writer.write(entryKey + "|" + present);
-                        writer.newLine();
-                    }
-                }
-                JOptionPane.showMessageDialog(this, "Attendance Recorded (excluding duplicates).");
-            } catch (IOException ex) {
+            Set<String> selectedStudents = rosterModel.getPresentStudents();
+            List<String> roster = new ArrayList<>(rosterModel.getStudents());
+            String course = courseCode;
+            submitBtn.setEnabled(false);
+            loader.run(() -> {
+                saveAttendance(roster, course, currentDate, selectedStudents);
+                return null;
+            }, done -> {
+                submitBtn.setEnabled(true);
+                JOptionPane.showMessageDialog(this, "Attendance Recorded (unchanged marks skipped).");
+            }, ex -> {
                 ex.printStackTrace();
+                submitBtn.setEnabled(true);
                 JOptionPane.showMessageDialog(this, "Error saving attendance.");
-            }
+            });
         });
 
+        presentLabel = new JLabel("Loading students...");
+        presentLabel.setBorder(BorderFactory.createEmptyBorder(0, 10, 0, 10));
+        rosterModel.addTableModelListener(e -> presentLabel.setText(
+                rosterModel.getPresentCount() + " of " + rosterModel.getRowCount() + " present"));
+
         JPanel btnPanel = new JPanel(new BorderLayout());
+        btnPanel.add(submitBtn, BorderLayout.CENTER);
+        btnPanel.add(presentLabel, BorderLayout.EAST);
+        panel.add(btnPanel, BorderLayout.SOUTH);
 
-JButton invertBtn = new JButton("Invert");
-invertBtn.setPreferredSize(new Dimension(80, 30));
-invertBtn.setBackground(Color.LIGHT_GRAY);
-invertBtn.setForeground(Color.BLACK);
-invertBtn.setFocusPainted(false);
+        return panel;
+    }
+
+    private void loadRoster() {
+        loader.load("Dashboard", "roster", () -> {
+            String course = getCourseForProfessor(username);
+            return new Roster(course, getStudentsInCourse(course));
+        }, roster -> {
+            courseCode = roster.course;
+            showRoster(roster.students);
+        });
+    }
 
-invertBtn.addActionListener(e -> {
-    for (JCheckBox cb : checkBoxes) {
-        cb.setSelected(!cb.isSelected());
+    // Alerts for the professor's course only
+    private void loadAlerts() {
+        loader.load("Alerts", "alerts", () -> AttendanceAlerts.report(getCourseForProfessor(username)),
+                alertArea::setText, ex -> {
+                    ex.printStackTrace();
+                    alertArea.setText("");
+                });
     }
-});
 
-JPanel rightPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
-rightPanel.add(invertBtn);
+    private static class Roster {
+        final String course;
+        final List<String> students;
 
-btnPanel.add(submitBtn, BorderLayout.CENTER);
-btnPanel.add(rightPanel, BorderLayout.EAST);
+        Roster(String course, List<String> students) {
+            this.course = course;
+            this.students = students;
+        }
+    }
 
-panel.add(btnPanel, BorderLayout.SOUTH);
+    // Students already marked stay marked across a reload
+    private void showRoster(List<String> loaded) {
+        title.setText("Mark Attendance for Course: " + courseCode);
+        rosterModel.setStudents(loaded);
+        submitBtn.setEnabled(true);
+    }
 
+    // Model indices of the rows the table's filter lets through
+    private static BitSet shownRows(JTable table) {
+        if (table.isEditing()) table.getCellEditor().stopCellEditing();
+        BitSet rows = new BitSet();
+        for (int row = 0; row < table.getRowCount(); row++) {
+            rows.set(table.convertRowIndexToModel(row));
+        }
+        return rows;
+    }
 
-        panel.add(new JScrollPane(studentPanel), BorderLayout.CENTER);
-        
-        return new JScrollPane(panel);
+    // Runs off the EDT; package-private so the benchmarks can drive it
+    // Blocks until the rows are stored; rows already recorded today are dropped by the store
+    static int saveAttendance(List<String> roster, String course, String currentDate, Set<String> selectedStudents)
+            throws IOException {
+        List<AttendanceRecord> records = new ArrayList<>();
+        for (String student : roster) {
+            records.add(new AttendanceRecord(student, currentDate, course, selectedStudents.contains(student)));
+        }
+        return AttendanceStore.shared().append(records);
+    }
+
+    // Past attendance for the professor's course over a date range, optionally for one student
+    private JPanel createHistoryPanel() {
+        JPanel panel = new JPanel(new BorderLayout());
+
+        LocalDate today = LocalDate.now();
+        historyFromField = new JTextField(today.minusDays(6).toString(), 10);
+        historyToField = new JTextField(today.toString(), 10);
+        historyStudentField = new JTextField(10);
+        JButton showBtn = new JButton("Show");
+        showBtn.addActionListener(e -> loadHistory());
+
+        JPanel filters = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        filters.add(new JLabel("From:"));
+        filters.add(historyFromField);
+        filters.add(new JLabel("To:"));
+        filters.add(historyToField);
+        filters.add(new JLabel("Student:"));
+        filters.add(historyStudentField);
+        filters.add(showBtn);
+        panel.add(filters, BorderLayout.NORTH);
+
+        historyModel = new DefaultTableModel(new String[]{"Date", "Student", "Status"}, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+        JTable table = new JTable(historyModel);
+        table.setRowHeight(24);
+        panel.add(new JScrollPane(table), BorderLayout.CENTER);
+
+        historyStatus = new JLabel(" ");
+        panel.add(historyStatus, BorderLayout.SOUTH);
+        return panel;
+    }
+
+    private void loadHistory() {
+        LocalDate from, to;
+        try {
+            from = LocalDate.parse(historyFromField.getText().trim());
+            to = LocalDate.parse(historyToField.getText().trim());
+        } catch (DateTimeParseException ex) {
+            JOptionPane.showMessageDialog(this, "Please enter dates as yyyy-mm-dd.");
+            return;
+        }
+        if (to.isBefore(from)) {
+            JOptionPane.showMessageDialog(this, "The end date is before the start date.");
+            return;
+        }
+        String student = historyStudentField.getText().trim();
+        String course = courseCode;
+        historyStatus.setText("Loading...");
+        loader.load("History", "history", () -> {
+            List<AttendanceRecord> records = from.equals(to)
+                    ? AttendanceStore.shared().dayRoster(course, from)
+                    : AttendanceStore.shared().courseHistory(course, from, to);
+            if (student.isEmpty()) return records;
+            List<AttendanceRecord> filtered = new ArrayList<>();
+            for (AttendanceRecord record : records) {
+                if (record.getStudent().equalsIgnoreCase(student)) filtered.add(record);
+            }
+            return filtered;
+        }, records -> {
+            historyModel.setRowCount(0);
+            int present = 0;
+            for (AttendanceRecord record : records) {
+                historyModel.addRow(new Object[]{record.getDate(), record.getStudent(), record.isPresent() ? "Present" : "Absent"});
+                if (record.isPresent()) present++;
+            }
+            historyStatus.setText(records.size() + " records, " + present + " present");
+        }, ex -> {
+            ex.printStackTrace();
+            historyStatus.setText("Error loading history.");
+        });
     }
 
     private JScrollPane createSchedulePanel() {
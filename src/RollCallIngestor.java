@@ -0,0 +1,311 @@
+package ui;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.LocalDate;
+import java.time.format.TextStyle;
+import java.util.*;
+import java.util.concurrent.*;
+
+// Headless import of card-reader roll calls into data/attendance.txt.
+// Every *.csv file in the directory holds "student,date,course[,status]" rows (status 1/0, P/A or
+// present/absent; a bare tap means present). Files are parsed in parallel, then each course/day
+// partition is deduplicated on its own task against the log, with the same student|date|course
+// semantics as the professor's submit: the last row wins, and a row repeating the mark already recorded
+// is skipped. Rows for a course missing from courses.txt, or for a student not enrolled in the course
+// (students.txt, as on the Attendance card), are rejected. Accepted rows go to AttendanceWriter as one batch.
+// Usage: RollCallIngestor <directory> [threads]
+public final class RollCallIngestor {
+    private static final Path COURSE_FILE = Paths.get("data/courses.txt");
+
+    private final AttendanceWriter writer;
+    private final AttendanceDedupIndex dedupIndex;
+    private final int threads;
+
+    public static final class Result {
+        private final int files;
+        private final long rows;
+        private final long malformed;
+        private final long notEnrolled;
+        private final long duplicates;
+        private final long alreadyRecorded;
+        private final long appended;
+        private final long nanos;
+
+        Result(int files, long rows, long malformed, long notEnrolled, long duplicates, long alreadyRecorded,
+               long appended, long nanos) {
+            this.files = files;
+            this.rows = rows;
+            this.malformed = malformed;
+            this.notEnrolled = notEnrolled;
+            this.duplicates = duplicates;
+            this.alreadyRecorded = alreadyRecorded;
+            this.appended = appended;
+            this.nanos = nanos;
+        }
+
+        public int getFiles() {
+            return files;
+        }
+
+        public long getRows() {
+            return rows;
+        }
+
+        public long getMalformed() {
+            return malformed;
+        }
+
+        // Rows for an unknown course or a student not enrolled in it
+        public long getNotEnrolled() {
+            return notEnrolled;
+        }
+
+        // Rows repeating a student|date|course already seen in this import
+        public long getDuplicates() {
+            return duplicates;
+        }
+
+        // Rows whose student|date|course is already in the log with the same mark
+        public long getAlreadyRecorded() {
+            return alreadyRecorded;
+        }
+
+        public long getAppended() {
+            return appended;
+        }
+
+        public double getRecordsPerSecond() {
+            return nanos == 0 ? 0 : rows * 1e9 / nanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d files, %d rows: %d appended, %d already recorded, %d duplicates, %d not enrolled,"
+                            + " %d malformed in %.1f ms (%.0f records/s)", files, rows, appended, alreadyRecorded,
+                    duplicates, notEnrolled, malformed, nanos / 1e6, getRecordsPerSecond());
+        }
+    }
+
+    // One parsed roll-call row; a student's first row in a partition keeps its place, and each later row
+    // (files in name order, then line order) replaces its mark
+    private static final class Mark {
+        final String student;
+        boolean present;
+
+        Mark(String student, boolean present) {
+            this.student = student;
+            this.present = present;
+        }
+    }
+
+    private static final class Partition {
+        final LocalDate day;
+        final String course;
+        final List<Mark> marks = new ArrayList<>();
+
+        Partition(LocalDate day, String course) {
+            this.day = day;
+            this.course = course;
+        }
+    }
+
+    private static final class Parsed {
+        final Map<String, Partition> partitions = new HashMap<>();
+        long rows;
+        long malformed;
+    }
+
+    private static final class Accepted {
+        final List<AttendanceRecord> records = new ArrayList<>();
+        long notEnrolled;
+        long duplicates;
+        long alreadyRecorded;
+    }
+
+    public RollCallIngestor(AttendanceWriter writer, int threads) {
+        this.writer = writer;
+        this.dedupIndex = writer.getDedupIndex();
+        this.threads = Math.max(1, threads);
+    }
+
+    public Result ingest(Path directory) throws IOException, InterruptedException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*.csv")) {
+            for (Path file : stream) {
+                files.add(file);
+            }
+        }
+        Collections.sort(files);
+
+        long start = System.nanoTime();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            // Parse: one task per file
+            List<Callable<Parsed>> parseTasks = new ArrayList<>();
+            for (Path file : files) {
+                parseTasks.add(() -> parse(file));
+            }
+            Parsed merged = new Parsed();
+            for (Future<Parsed> future : pool.invokeAll(parseTasks)) {
+                Parsed parsed = get(future);
+                merged.rows += parsed.rows;
+                merged.malformed += parsed.malformed;
+                for (Map.Entry<String, Partition> entry : parsed.partitions.entrySet()) {
+                    Partition target = merged.partitions.get(entry.getKey());
+                    if (target == null) {
+                        merged.partitions.put(entry.getKey(), entry.getValue());
+                    } else {
+                        target.marks.addAll(entry.getValue().marks);
+                    }
+                }
+            }
+
+            // Dedup: one task per course/day partition, in day then course order so the log stays chronological
+            dedupIndex.refresh();
+            Set<String> courses = readCourses();
+            AttendanceSummary enrolments = AttendanceSummary.shared();
+            List<Partition> partitions = new ArrayList<>(merged.partitions.values());
+            partitions.sort(Comparator.comparing((Partition p) -> p.day).thenComparing(p -> p.course));
+            List<Callable<Accepted>> dedupTasks = new ArrayList<>();
+            for (Partition partition : partitions) {
+                dedupTasks.add(() -> accept(partition, courses, enrolments));
+            }
+            Accepted all = new Accepted();
+            for (Future<Accepted> future : pool.invokeAll(dedupTasks)) {
+                Accepted accepted = get(future);
+                all.notEnrolled += accepted.notEnrolled;
+                all.duplicates += accepted.duplicates;
+                all.alreadyRecorded += accepted.alreadyRecorded;
+                all.records.addAll(accepted.records);
+            }
+
+            // The writer checks again, so rows submitted from a dashboard meanwhile are not doubled
+            int appended = get(writer.append(all.records));
+            all.alreadyRecorded += all.records.size() - appended;
+            return new Result(files.size(), merged.rows, merged.malformed, all.notEnrolled, all.duplicates,
+                    all.alreadyRecorded, appended, System.nanoTime() - start);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static Parsed parse(Path file) throws IOException {
+        Parsed parsed = new Parsed();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            boolean first = true;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty()) continue;
+                if (first && line.toLowerCase().startsWith("student,")) { // header
+                    first = false;
+                    continue;
+                }
+                first = false;
+                parsed.rows++;
+
+                String[] parts = line.split(",");
+                LocalDate day = parts.length >= 3 ? AttendanceRecord.parseDay(parts[1].trim()) : null;
+                Boolean present = parts.length >= 4 ? parseStatus(parts[3].trim()) : Boolean.TRUE;
+                String student = parts.length >= 3 ? parts[0].trim() : "";
+                String course = parts.length >= 3 ? parts[2].trim().toUpperCase() : "";
+                if (day == null || present == null || student.isEmpty() || course.isEmpty()
+                        || student.contains("|") || course.contains("|") || parts.length > 4) {
+                    parsed.malformed++;
+                    continue;
+                }
+                parsed.partitions.computeIfAbsent(day + "|" + course, k -> new Partition(day, course))
+                        .marks.add(new Mark(student, present));
+            }
+        }
+        return parsed;
+    }
+
+    // courses is null when courses.txt is missing; enrolment alone decides then
+    private Accepted accept(Partition partition, Set<String> courses, AttendanceSummary enrolments)
+            throws IOException {
+        Accepted accepted = new Accepted();
+        if (courses != null && !courses.contains(partition.course)) {
+            accepted.notEnrolled = partition.marks.size();
+            return accepted;
+        }
+        Map<String, Boolean> existing = dedupIndex.marksFor(partition.day);
+        Map<String, Mark> byStudent = new LinkedHashMap<>();
+        for (Mark mark : partition.marks) {
+            if (!enrolments.coursesOf(mark.student).contains(partition.course)) {
+                accepted.notEnrolled++;
+                continue;
+            }
+            Mark first = byStudent.putIfAbsent(mark.student, mark);
+            if (first != null) {
+                first.present = mark.present;
+                accepted.duplicates++;
+            }
+        }
+
+        String date = partition.day + " (" + partition.day.getDayOfWeek().getDisplayName(TextStyle.FULL, Locale.ENGLISH) + ")";
+        for (Mark mark : byStudent.values()) {
+            Boolean recorded = existing.get(AttendanceDedupIndex.key(mark.student, partition.course));
+            if (recorded != null && recorded == mark.present) {
+                accepted.alreadyRecorded++;
+                continue;
+            }
+            accepted.records.add(new AttendanceRecord(mark.student, date, partition.course, mark.present));
+        }
+        return accepted;
+    }
+
+    // Course codes from courses.txt ("code,name" rows), or null if there is no such file
+    private static Set<String> readCourses() throws IOException {
+        if (!Files.exists(COURSE_FILE)) return null;
+        Set<String> codes = new HashSet<>();
+        for (String line : DataFiles.readLines(COURSE_FILE)) {
+            String code = line.split(",")[0].trim();
+            if (!code.isEmpty()) codes.add(code.toUpperCase());
+        }
+        return codes;
+    }
+
+    private static Boolean parseStatus(String status) {
+        switch (status.toLowerCase()) {
+            case "":
+            case "1":
+            case "p":
+            case "present":
+                return Boolean.TRUE;
+            case "0":
+            case "a":
+            case "absent":
+                return Boolean.FALSE;
+            default:
+                return null;
+        }
+    }
+
+    private static <T> T get(Future<T> future) throws IOException, InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) throw (IOException) cause;
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            throw new IOException(cause);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1 || args.length > 2) {
+            System.err.println("Usage: RollCallIngestor <directory> [threads]");
+            System.exit(1);
+        }
+        int threads = args.length == 2 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        RollCallIngestor ingestor = new RollCallIngestor(AttendanceWriter.shared(), threads);
+        System.out.println(ingestor.ingest(Paths.get(args[0])));
+        List<AttendanceAlerts.Alert> alerts = AttendanceAlerts.shared().refresh();
+        for (AttendanceAlerts.Alert alert : alerts) {
+            System.out.println(alert);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package ui;
+
+import java.util.*;
+import java.util.List;
+import javax.swing.table.AbstractTableModel;
+
+// Rows of the professor's Mark Attendance table: the course roster and one presence bit per student.
+// Nothing is held per row but the name and the bit, and cells are painted by the table's renderers,
+// so a large lecture course costs no components and bulk changes are a single bitset operation.
+public final class RosterTableModel extends AbstractTableModel {
+    static final int PRESENT = 0;
+    static final int STUDENT = 1;
+
+    private List<String> students = Collections.emptyList();
+    private final BitSet present = new BitSet();
+
+    // Replaces the roster; students already marked present stay marked if they are still on it
+    public void setStudents(List<String> loaded) {
+        Set<String> marked = getPresentStudents();
+        students = new ArrayList<>(loaded);
+        present.clear();
+        for (int i = 0; i < students.size(); i++) {
+            if (marked.contains(students.get(i))) present.set(i);
+        }
+        fireTableDataChanged();
+    }
+
+    public List<String> getStudents() {
+        return Collections.unmodifiableList(students);
+    }
+
+    public Set<String> getPresentStudents() {
+        Set<String> marked = new HashSet<>();
+        for (int i = present.nextSetBit(0); i >= 0; i = present.nextSetBit(i + 1)) {
+            marked.add(students.get(i));
+        }
+        return marked;
+    }
+
+    public int getPresentCount() {
+        return present.cardinality();
+    }
+
+    // Marks the given rows (model indices) present or absent; the other rows keep their marks
+    public void setPresent(BitSet rows, boolean value) {
+        if (value) {
+            present.or(rows);
+        } else {
+            present.andNot(rows);
+        }
+        fireTableDataChanged();
+    }
+
+    public void invert(BitSet rows) {
+        present.xor(rows);
+        fireTableDataChanged();
+    }
+
+    @Override
+    public int getRowCount() {
+        return students.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return 2;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return column == PRESENT ? "Present" : "Student";
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return column == PRESENT ? Boolean.class : String.class;
+    }
+
+    @Override
+    public boolean isCellEditable(int row, int column) {
+        return column == PRESENT;
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        return column == PRESENT ? present.get(row) : students.get(row);
+    }
+
+    @Override
+    public void setValueAt(Object value, int row, int column) {
+        if (column != PRESENT) return;
+        present.set(row, Boolean.TRUE.equals(value));
+        fireTableCellUpdated(row, column);
+    }
+}
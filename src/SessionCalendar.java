@@ -0,0 +1,143 @@
+package ui;
+
+import java.io.*;
+import java.nio.file.*;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.*;
+
+// Counts scheduled sessions of a course over a date range without walking the calendar.
+// The weekly timetable gives whole weeks x sessions per weekday; holidays and working-day overrides
+// are folded into a per-course prefix sum of adjustments, so every query is a handful of array reads.
+public final class SessionCalendar {
+    // Optional: a single yyyy-MM-dd line with the first day of the semester
+    private static final Path SEMESTER_FILE = Paths.get("data/semester.txt");
+    private static final LocalDate DEFAULT_START = LocalDate.of(2024, 1, 1);
+
+    private static final int[] NO_SESSIONS = new int[7];
+
+    private static SessionCalendar cached;
+    private static String cachedStamp;
+    private static HolidayCalendar cachedHolidays;
+    private static Timetable cachedTimetable;
+
+    private final LocalDate start;
+    private final long startDay;
+    // course name -> sessions per weekday, index 0 = Monday; weekends only run through overrides
+    private final Map<String, int[]> weekly = new HashMap<>();
+    // course name -> cumulative session adjustment for days start, start + 1, ...
+    private final Map<String, int[]> adjustments = new HashMap<>();
+
+    private SessionCalendar(LocalDate start) {
+        this.start = start;
+        this.startDay = start.toEpochDay();
+    }
+
+    // Rebuilt only when the timetable, the semester start or the holiday calendar changes
+    public static synchronized SessionCalendar current() {
+        String stamp = DataFiles.stamp(SEMESTER_FILE);
+        HolidayCalendar holidays = HolidayCalendar.shared();
+        Timetable timetable = Timetable.shared();
+        if (cached == null || !stamp.equals(cachedStamp) || holidays != cachedHolidays || timetable != cachedTimetable) {
+            try {
+                cached = load(timetable, holidays);
+            } catch (IOException e) {
+                e.printStackTrace();
+                if (cached == null) cached = new SessionCalendar(DEFAULT_START);
+            }
+            cachedStamp = stamp;
+            cachedHolidays = holidays;
+            cachedTimetable = timetable;
+        }
+        return cached;
+    }
+
+    static SessionCalendar load(Timetable timetable, HolidayCalendar holidays) throws IOException {
+        SessionCalendar calendar = new SessionCalendar(readStart());
+
+        for (DayOfWeek day : DayOfWeek.values()) {
+            for (Timetable.Slot slot : timetable.slots(day)) {
+                calendar.weekly.computeIfAbsent(slot.getSubject(), k -> new int[7])[day.ordinal()]++;
+            }
+        }
+
+        calendar.buildAdjustments(holidays);
+        return calendar;
+    }
+
+    public LocalDate getStart() {
+        return start;
+    }
+
+    // Sessions of the course held from the semester start up to and including the given day
+    public int count(String course, LocalDate to) {
+        return count(course, start, to);
+    }
+
+    // Sessions of the course held in [from, to], both inclusive; days before the semester start are ignored
+    public int count(String course, LocalDate from, LocalDate to) {
+        long first = Math.max(from.toEpochDay(), startDay);
+        long last = to.toEpochDay();
+        if (last < first) return 0;
+
+        int[] sessions = weekly.getOrDefault(course, NO_SESSIONS);
+        long days = last - first + 1;
+        long fullWeeks = days / 7;
+        int remainder = (int) (days % 7);
+        int firstDow = LocalDate.ofEpochDay(first).getDayOfWeek().ordinal();
+
+        long total = 0;
+        for (int i = 0; i < 5; i++) {
+            total += fullWeeks * sessions[i];
+        }
+        for (int i = 0; i < remainder; i++) {
+            int dow = (firstDow + i) % 7;
+            if (dow < 5) total += sessions[dow];
+        }
+
+        int[] adjust = adjustments.get(course);
+        if (adjust != null) {
+            total += prefix(adjust, last) - prefix(adjust, first - 1);
+        }
+        return (int) total;
+    }
+
+    private long prefix(int[] adjust, long day) {
+        if (day < startDay || adjust.length == 0) return 0;
+        return adjust[(int) Math.min(day - startDay, adjust.length - 1)];
+    }
+
+    private void buildAdjustments(HolidayCalendar holidays) {
+        TreeSet<LocalDate> events = new TreeSet<>(holidays.getHolidays());
+        events.addAll(holidays.getOverrides().keySet());
+        events.removeIf(date -> date.isBefore(start));
+        if (events.isEmpty()) return;
+
+        LocalDate lastEvent = events.last();
+        int length = (int) (lastEvent.toEpochDay() - startDay + 1);
+
+        for (Map.Entry<String, int[]> entry : weekly.entrySet()) {
+            int[] sessions = entry.getValue();
+            int[] delta = new int[length];
+            for (LocalDate date : events) {
+                int dow = date.getDayOfWeek().ordinal();
+                int scheduled = dow < 5 ? sessions[dow] : 0;
+                DayOfWeek runs = holidays.scheduleDay(date);
+                int held = runs == null ? 0 : sessions[runs.ordinal()];
+                delta[(int) (date.toEpochDay() - startDay)] = held - scheduled;
+            }
+            for (int i = 1; i < length; i++) {
+                delta[i] += delta[i - 1];
+            }
+            adjustments.put(entry.getKey(), delta);
+        }
+    }
+
+    private static LocalDate readStart() throws IOException {
+        for (String line : DataFiles.readLines(SEMESTER_FILE)) {
+            LocalDate date = DataFiles.parseDate(line);
+            if (date != null) return date;
+        }
+        return DEFAULT_START;
+    }
+}
@@ -7,7 +7,8 @@ import java.util.*;
 import java.util.List;
 import javax.swing.*;
 import javax.swing.table.DefaultTableCellRenderer;
-import javax.swing.table.DefaultTableModel;
+import javax.swing.table.TableColumn;
+import javax.swing.table.TableRowSorter;
 
 public class StudentDashboard extends JFrame {
     private String username;
@@ -15,6 +16,13 @@ public class StudentDashboard extends JFrame {
     private JPanel contentPanel;
     private JLabel enrolledLabel, todayClassesLabel, nextClassLabel;
     private JTable attendanceTable;
+    private final AttendanceSummaryTableModel summaryModel = new AttendanceSummaryTableModel();
+    private JLabel attendanceStatusLabel;
+    // Rows behind the attendance table, shared with the pie chart dialog; null until the first load
+    private List<AttendanceSummary.Row> summaryRows;
+    private MultiPieChartWindow pieChartWindow;
+    private final BackgroundLoader loader = new BackgroundLoader();
+    private final List<DataWatcher.Subscription> subscriptions = new ArrayList<>();
 
     public StudentDashboard(String username) {
         this.username = username;
@@ -27,10 +35,30 @@ public class StudentDashboard extends JFrame {
         initSidebar();
         initHeader();
         initContent();
+        watchDataFiles();
 
         setVisible(true);
     }
 
+    // Refresh the dashboard when another window or process changes the files it shows
+    private void watchDataFiles() {
+        DataWatcher watcher = DataWatcher.shared();
+        subscriptions.add(watcher.subscribe(this::loadEnrolledCourses, "students.txt"));
+        subscriptions.add(watcher.subscribe(this::loadTodayAndNextClasses,
+                "timetable.txt", "holidays.txt", "working_days.txt", "weekend_overrides.txt"));
+        subscriptions.add(watcher.subscribe(this::loadAttendance, "attendance.txt", "class_totals.txt", "students.txt",
+                "timetable.txt", "holidays.txt", "working_days.txt", "weekend_overrides.txt", "semester.txt"));
+    }
+
+    @Override
+    public void dispose() {
+        for (DataWatcher.Subscription subscription : subscriptions) {
+            subscription.cancel();
+        }
+        loader.cancelAll();
+        super.dispose();
+    }
+
     private void initHeader() {
         JPanel header = new JPanel(new BorderLayout());
         header.setBackground(Color.WHITE);
@@ -69,18 +97,18 @@ public class StudentDashboard extends JFrame {
         }
 
         dashboardBtn.addActionListener(e -> {
+            showCard("Dashboard");
             loadEnrolledCourses();
             loadTodayAndNextClasses();
-            cardLayout.show(contentPanel, "Dashboard");
         });
 
         attendanceBtn.addActionListener(e -> {
+            showCard("Attendance");
             loadAttendance();
-            cardLayout.show(contentPanel, "Attendance");
         });
 
         scheduleBtn.addActionListener(e -> {
-            cardLayout.show(contentPanel, "Schedule");
+            showCard("Schedule");
         });
 
         logoutBtn.setMaximumSize(new Dimension(160, 40));
@@ -112,6 +140,11 @@ public class StudentDashboard extends JFrame {
         cardLayout.show(contentPanel, "Dashboard");
     }
 
+    private void showCard(String card) {
+        loader.showing(card);
+        cardLayout.show(contentPanel, card);
+    }
+
     private JPanel createDashboardPanel() {
         JPanel panel = new JPanel(new GridLayout(3, 1, 10, 10));
         panel.setBackground(Color.WHITE);
@@ -141,197 +174,154 @@ public class StudentDashboard extends JFrame {
         panel.setBackground(Color.WHITE);
         panel.setBorder(BorderFactory.createEmptyBorder(20, 20, 20, 20));
 
-        String[] columns = {"Course", "Total Classes", "Attended", "Missed",  "Percentage (%)"};
-        DefaultTableModel model = new DefaultTableModel(columns, 0);
+        attendanceTable = new JTable(summaryModel);
+        AttendanceCellRenderer renderer = new AttendanceCellRenderer(summaryModel);
+        for (TableColumn column : Collections.list(attendanceTable.getColumnModel().getColumns())) {
+            column.setCellRenderer(renderer);
+        }
+        TableRowSorter<AttendanceSummaryTableModel> sorter = new TableRowSorter<>(summaryModel);
+        attendanceTable.setRowSorter(sorter);
+        JScrollPane scrollPane = new JScrollPane(attendanceTable);
 
-        List<String> enrolledCourses = getEnrolledCourseCodes();
+        JCheckBox lowOnly = new JCheckBox("Only below " + summaryModel.getThreshold() + "%");
+        lowOnly.setBackground(Color.WHITE);
+        lowOnly.addActionListener(e -> sorter.setRowFilter(!lowOnly.isSelected() ? null
+                : new RowFilter<AttendanceSummaryTableModel, Integer>() {
+                    @Override
+                    public boolean include(Entry<? extends AttendanceSummaryTableModel, ? extends Integer> entry) {
+                        return entry.getModel().isLow(entry.getIdentifier());
+                    }
+                }));
 
-        for (String course : enrolledCourses) {
-            int total = getTotalClassesFromFile(course);
-            int attended = getAttendedClasses(course);
-            int missed = getMissedClasses(course);
-            int percentage = total == 0 ? 0 : (int) ((attended / (double) total) * 100);
-            model.addRow(new Object[]{getCourseName(course), total, attended, percentage + "%"});
-        }
+        attendanceStatusLabel = new JLabel(" ");
+        JPanel statusPanel = new JPanel(new BorderLayout());
+        statusPanel.setBackground(Color.WHITE);
+        statusPanel.add(attendanceStatusLabel, BorderLayout.CENTER);
+        statusPanel.add(lowOnly, BorderLayout.EAST);
 
-        attendanceTable = new JTable(model);
-        attendanceTable.setDefaultRenderer(Object.class, new AttendanceCellRenderer());
-        JScrollPane scrollPane = new JScrollPane(attendanceTable);
-        panel.add(scrollPane, BorderLayout.CENTER);
+        JPanel tablePanel = new JPanel(new BorderLayout());
+        tablePanel.setBackground(Color.WHITE);
+        tablePanel.add(statusPanel, BorderLayout.NORTH);
+        tablePanel.add(scrollPane, BorderLayout.CENTER);
+        panel.add(tablePanel, BorderLayout.CENTER);
 
         JButton calculatorBtn = new JButton("Open Calculator");
         calculatorBtn.addActionListener(e -> new CalculatorWindow());
         panel.add(calculatorBtn, BorderLayout.SOUTH);
 
         JButton pieChartBtn = new JButton("View Pie Chart");
-        pieChartBtn.addActionListener(e -> new MultiPieChartWindow());
+        pieChartBtn.addActionListener(e -> {
+            if (summaryRows != null) {
+                showPieCharts();
+                return;
+            }
+            pieChartBtn.setEnabled(false);
+            loader.load("Attendance", "pieChart", this::readSummaryRows, rows -> {
+                pieChartBtn.setEnabled(true);
+                summaryRows = rows;
+                showPieCharts();
+            }, ex -> {
+                ex.printStackTrace();
+                pieChartBtn.setEnabled(true);
+            });
+        });
         panel.add(pieChartBtn, BorderLayout.NORTH);
 
+        loadAttendance();
+
         return panel;
     }
 
-class AttendanceCellRenderer extends DefaultTableCellRenderer {
-    @Override
-    public Component getTableCellRendererComponent(JTable table, Object value,
-        boolean isSelected, boolean hasFocus, int row, int column) {
-
-        Component c = super.getTableCellRendererComponent(table, value, isSelected, hasFocus, row, column);
+    // Shows the model's precomputed text and highlights rows below the threshold from its per-row flag,
+    // so painting a cell parses and allocates nothing
+    static class AttendanceCellRenderer extends DefaultTableCellRenderer {
+        private static final Color LOW = new Color(255, 204, 204); // Light red
 
-        String percentStr = table.getValueAt(row, 4).toString(); // "Percentage (%)" column
-        int percent = Integer.parseInt(percentStr.replace("%", ""));
+        private final AttendanceSummaryTableModel model;
 
-        if (percent < 75) {
-            c.setBackground(new Color(255, 204, 204)); // Light red
-        } else {
-            c.setBackground(Color.WHITE);
+        AttendanceCellRenderer(AttendanceSummaryTableModel model) {
+            this.model = model;
         }
 
-        return c;
+        @Override
+        public Component getTableCellRendererComponent(JTable table, Object value,
+                boolean isSelected, boolean hasFocus, int row, int column) {
+            int modelRow = table.convertRowIndexToModel(row);
+            String text = model.getText(modelRow, table.convertColumnIndexToModel(column));
+            Component c = super.getTableCellRendererComponent(table, text, isSelected, hasFocus, row, column);
+            if (!isSelected) c.setBackground(model.isLow(modelRow) ? LOW : Color.WHITE);
+            return c;
+        }
     }
-}
 
     private void loadEnrolledCourses() {
-        try (BufferedReader reader = new BufferedReader(new FileReader("data/students.txt"))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split(",");
-                if (parts[0].equals(username)) {
-                    if (parts.length >= 3) {
-                        String[] courseCodes = parts[2].split(";");
-                        List<String> courseNames = new ArrayList<>();
-                        for (String code : courseCodes) {
-                            courseNames.add(getCourseName(code));
-                        }
-                        enrolledLabel.setText("Enrolled Courses: " + String.join(", ", courseNames));
-                        return;
-                    }
-                }
-            }
-        } catch (IOException e) {
-            enrolledLabel.setText("Enrolled Courses: [Error loading]");
+        enrolledLabel.setText("Enrolled Courses: Loading...");
+        loader.load("Dashboard", "enrolled", this::readEnrolledCourseNames,
+                names -> enrolledLabel.setText("Enrolled Courses: " + String.join(", ", names)),
+                ex -> enrolledLabel.setText("Enrolled Courses: [Error loading]"));
+    }
+
+    // Runs off the EDT
+    private List<String> readEnrolledCourseNames() {
+        List<String> courseNames = new ArrayList<>();
+        for (String code : AttendanceSummary.shared().coursesOf(username)) {
+            courseNames.add(AttendanceSummary.courseName(code));
         }
+        return courseNames;
     }
     
     private void loadAttendance() {
-        DefaultTableModel model = (DefaultTableModel) attendanceTable.getModel();
-        model.setRowCount(0); // Clear previous rows
-    
-        List<String> enrolledCourses = getEnrolledCourseCodes();
-    
-        for (String course : enrolledCourses) {
-            int total = getTotalClassesFromFile(course);
-            int attended = getAttendedClasses(course);
-            int missed = getMissedClasses(course);
-            int percentage = total == 0 ? 0 : (int) ((attended / (double) total) * 100);
-            model.addRow(new Object[]{getCourseName(course), total, attended, missed,  percentage + "%"});
-        }
+        attendanceStatusLabel.setText("Loading attendance...");
+        loader.load("Attendance", "table", this::readSummaryRows, rows -> {
+            summaryRows = rows;
+            summaryModel.setRows(rows);
+            if (pieChartWindow != null) pieChartWindow.update(rows);
+            attendanceStatusLabel.setText(" ");
+        }, ex -> {
+            ex.printStackTrace();
+            attendanceStatusLabel.setText("Error loading attendance.");
+        });
     }
 
-    private int getTotalClassesFromFile(String courseCode) {
-        try (BufferedReader reader = new BufferedReader(new FileReader("data/class_totals.txt"))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split(",");
-                if (parts.length == 2 && parts[0].equals(courseCode)) {
-                    return Integer.parseInt(parts[1]);
-                }
-            }
-        } catch (IOException | NumberFormatException e) {
-            e.printStackTrace();
-        }
-        return 0;
+    // Runs off the EDT
+    private List<AttendanceSummary.Row> readSummaryRows() throws IOException {
+        return AttendanceSummary.shared().rows(username);
     }
 
-    private String getCourseName(String code) {
-        switch (code) {
-            case "A": return "OOP";
-            case "B": return "Physics";
-            case "C": return "Elec";
-            case "D": return "DSML";
-            case "E": return "Math";
-            case "F": return "Ecology";
-            default: return code;
+    // The dialog is modal; while it is open, reloads of the attendance table update its charts
+    private void showPieCharts() {
+        pieChartWindow = new MultiPieChartWindow(summaryRows);
+        try {
+            pieChartWindow.setVisible(true);
+        } finally {
+            pieChartWindow = null;
         }
     }
 
-    private boolean isTodayHoliday() {
-        LocalDate today = LocalDate.now();
-        String todayStr = today.toString();
-        String day = today.getDayOfWeek().name();
-
-        if (day.equals("SATURDAY") || day.equals("SUNDAY")) {
-            try (BufferedReader reader = new BufferedReader(new FileReader("data/working_days.txt"))) {
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    if (line.startsWith(todayStr + ",")) {
-                        return false;
-                    }
-                }
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
-            return true;
-        }
-
-        try (BufferedReader reader = new BufferedReader(new FileReader("data/holidays.txt"))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                if (line.equals(todayStr)) {
-                    return true;
-                }
-            }
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-
-        return false;
-    }
-
-    private String getOverrideDay() {
-        String today = LocalDate.now().toString();
-        try (BufferedReader reader = new BufferedReader(new FileReader("data/working_days.txt"))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                if (line.startsWith(today + ",")) {
-                    return line.split(",")[1];
-                }
-            }
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-        return null;
+    private void loadTodayAndNextClasses() {
+        todayClassesLabel.setText("Classes Today: Loading...");
+        nextClassLabel.setText("Next Class: Loading...");
+        loader.load("Dashboard", "classes", this::readTodayAndNextClasses, labels -> {
+            todayClassesLabel.setText(labels[0]);
+            nextClassLabel.setText(labels[1]);
+        });
     }
 
-    private void loadTodayAndNextClasses() {
-        
-        if (isTodayHoliday()) {
-            todayClassesLabel.setText("Classes Today: No classes today 🎉");
-            nextClassLabel.setText("Next Class: No classes today 🎉");
-            return;
+    // Runs off the EDT; returns the "Classes Today" and "Next Class" label texts
+    private String[] readTodayAndNextClasses() {
+        // Weekday whose timetable runs today, after holidays and working-day overrides
+        DayOfWeek scheduleDay = HolidayCalendar.shared().scheduleDay(LocalDate.now());
+        if (scheduleDay == null) {
+            return new String[]{"Classes Today: No classes today 🎉", "Next Class: No classes today 🎉"};
         }
     
-        String day = mapToShortDay(LocalDate.now().getDayOfWeek().name());
-
-        String override = getOverrideDay();
-        if (override != null) day = override;
-    
         LocalTime now = LocalTime.now();
         List<String> todayClasses = new ArrayList<>();
         TreeMap<LocalTime, String> classMap = new TreeMap<>();
     
-        try (BufferedReader reader = new BufferedReader(new FileReader("data/timetable.txt"))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split(",");
-                if (parts[0].equalsIgnoreCase(day)) {
-                    LocalTime classTime = LocalTime.parse(parts[1]);
-                    String course = parts[2];
-                    todayClasses.add(course + " at " + parts[1]);
-                    classMap.put(classTime, course);
-                }
-            }
-        } catch (IOException e) {
-            e.printStackTrace();
+        for (Timetable.Slot slot : Timetable.shared().slots(scheduleDay)) {
+            todayClasses.add(slot.getSubject() + " at " + slot.getTime());
+            classMap.put(slot.getTime(), slot.getSubject());
         }
     
         // Determine next class (first one after or equal to now)
@@ -343,193 +333,50 @@ class AttendanceCellRenderer extends DefaultTableCellRenderer {
             }
         }
     
-        todayClassesLabel.setText("Classes Today: " + (todayClasses.isEmpty() ? "None 🎉" : String.join(" | ", todayClasses)));
-        nextClassLabel.setText("Next Class: " + nextClass);
+        return new String[]{
+                "Classes Today: " + (todayClasses.isEmpty() ? "None 🎉" : String.join(" | ", todayClasses)),
+                "Next Class: " + nextClass};
     }
 
-    private String mapToShortDay(String day) {
-        switch (day.toLowerCase()) {
-            case "monday": return "MON";
-            case "tuesday": return "TUE";
-            case "wednesday": return "WED";
-            case "thursday": return "THU";
-            case "friday": return "FRI";
-            case "saturday": return "SAT";
-            case "sunday": return "SUN";
-            default: return day;
-        }
-    }
-    
-    private List<String> getEnrolledCourseCodes() {
-        List<String> courses = new ArrayList<>();
-        try (BufferedReader reader = new BufferedReader(new FileReader("data/students.txt"))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split(",");
-                if (parts[0].equals(username) && parts.length >= 3) {
-                    courses.addAll(Arrays.asList(parts[2].split(";")));
-                    break;
-                }
-            }
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-        return courses;
-    }
-
-    private int getAttendedClasses(String courseCode) {
-        int count = 0;
-        try (BufferedReader reader = new BufferedReader(new FileReader("data/attendance.txt"))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split("\\|");
-                if (parts.length == 4 && parts[0].equals(username) && parts[2].equals(courseCode) && parts[3].equals("1")) {
-                    count++;
-                }
-            }
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-        return count;
-    }
-
-    private int getMissedClasses(String courseCode) {
-        int missed = 0;
-        try (BufferedReader br = new BufferedReader(new FileReader("data/attendance.txt"))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                String[] parts = line.split("\\|");
-                if (parts.length == 4 && parts[0].equals(username) && parts[2].equals(courseCode) && parts[3].equals("0")) {
-                    missed++;
-                }
-            }
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-        return missed;
-    }
-
-    private int getTotalClasses(String courseCode) {
-        int count = 0;
-        Set<String> holidays = new HashSet<>();
-        Set<String> workingOverrides = new HashSet<>();
-        try (BufferedReader hReader = new BufferedReader(new FileReader("data/holidays.txt"))) {
-            String line;
-            while ((line = hReader.readLine()) != null) {
-                holidays.add(line.trim());
-            }
-        } catch (IOException e) {
-            e.printStackTrace();
+    class MultiPieChartWindow extends JDialog {
+        private final JPanel chartPanel = new JPanel(new GridLayout(0, 2, 20, 20)); // 2 columns, dynamic rows
+        // course code -> chart, in table order
+        private final Map<String, PieChartPanel> charts = new LinkedHashMap<>();
+
+        public MultiPieChartWindow(List<AttendanceSummary.Row> rows) {
+            setTitle("Attendance Pie Charts by Course");
+            setSize(600, 600);
+            setLocationRelativeTo(null);
+            setModal(true);
+
+            update(rows);
+            add(new JScrollPane(chartPanel));
         }
 
-        try (BufferedReader wReader = new BufferedReader(new FileReader("data/working_days.txt"))) {
-            String line;
-            while ((line = wReader.readLine()) != null) {
-                String[] parts = line.split(",");
-                if (parts.length >= 2) {
-                    workingOverrides.add(parts[0].trim());
-                }
+        // Charts are rebuilt only when the courses change; otherwise each keeps its cached image unless its counts moved
+        void update(List<AttendanceSummary.Row> rows) {
+            List<String> courses = new ArrayList<>();
+            for (AttendanceSummary.Row row : rows) {
+                courses.add(row.getCourse());
             }
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-
-        LocalDate startDate = LocalDate.of(2024, 1, 1); // Adjust semester start
-        LocalDate today = LocalDate.now();
-
-        try (BufferedReader reader = new BufferedReader(new FileReader("data/timetable.txt"))) {
-            Map<String, List<String>> courseSchedule = new HashMap<>();
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split(",");
-                if (parts.length >= 3 && parts[2].equals(courseCode)) {
-                    courseSchedule.computeIfAbsent(parts[0].toUpperCase(), k -> new ArrayList<>()).add(parts[1]);
+            if (!courses.equals(new ArrayList<>(charts.keySet()))) {
+                charts.clear();
+                chartPanel.removeAll();
+                for (AttendanceSummary.Row row : rows) {
+                    PieChartPanel chart = new PieChartPanel(row.getCourseName(), row.getAttended(), row.getMissed());
+                    charts.put(row.getCourse(), chart);
+                    chartPanel.add(chart);
                 }
+                chartPanel.revalidate();
+                chartPanel.repaint();
+                return;
             }
-
-            for (LocalDate date = startDate; date.isBefore(today) || date.isEqual(today); date = date.plusDays(1)) {
-                String day = date.getDayOfWeek().toString();
-                if (holidays.contains(date.toString())) continue;
-                if ((day.equals("SATURDAY") || day.equals("SUNDAY")) && !workingOverrides.contains(date.toString()))
-                    continue;
-                if (courseSchedule.containsKey(day)) {
-                    count += courseSchedule.get(day).size();
-                }
+            for (AttendanceSummary.Row row : rows) {
+                charts.get(row.getCourse()).setCounts(row.getCourseName(), row.getAttended(), row.getMissed());
             }
-        } catch (IOException e) {
-            e.printStackTrace();
         }
-        return count;
     }
 
-    class MultiPieChartWindow extends JDialog {
-    public MultiPieChartWindow() {
-        setTitle("Attendance Pie Charts by Course");
-        setSize(600, 600);
-        setLocationRelativeTo(null);
-        setModal(true);
-
-        JPanel chartPanel = new JPanel();
-        chartPanel.setLayout(new GridLayout(0, 2, 20, 20)); // 2 columns, dynamic rows
-
-        List<String> courseCodes = getEnrolledCourseCodes();
-        for (String code : courseCodes) {
-            String courseName = getCourseName(code);
-            int attended = getAttendedClasses(code);
-            int missed = getMissedClasses(code); // You must have this method
-
-            chartPanel.add(new SinglePieChartPanel(courseName, attended, missed));
-        }
-
-        JScrollPane scrollPane = new JScrollPane(chartPanel);
-        add(scrollPane);
-        setVisible(true);
-    }
-
-    class SinglePieChartPanel extends JPanel {
-        String courseName;
-        int attended, missed;
-
-        public SinglePieChartPanel(String courseName, int attended, int missed) {
-            this.courseName = courseName;
-            this.attended = attended;
-            this.missed = missed;
-            setPreferredSize(new Dimension(250, 250));
-        }
-
-        @Override
-        protected void paintComponent(Graphics g) {
-            super.paintComponent(g);
-            Graphics2D g2 = (Graphics2D) g;
-            g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-
-            int total = attended + missed;
-            if (total == 0) return;
-
-            int attendedAngle = (int) Math.round((attended / (double) total) * 360);
-            int missedAngle = 360 - attendedAngle;
-
-            // Draw Pie
-            g2.setColor(Color.GREEN);
-            g2.fillArc(20, 40, 150, 150, 0, attendedAngle);
-            g2.setColor(Color.RED);
-            g2.fillArc(20, 40, 150, 150, attendedAngle, missedAngle);
-
-            // Draw legend
-            g2.setColor(Color.BLACK);
-            g2.drawString(courseName, 20, 20);
-            g2.setColor(Color.GREEN);
-            g2.fillRect(180, 60, 10, 10);
-            g2.setColor(Color.BLACK);
-            g2.drawString("Attended: " + attended, 200, 70);
-            g2.setColor(Color.RED);
-            g2.fillRect(180, 90, 10, 10);
-            g2.setColor(Color.BLACK);
-            g2.drawString("Missed: " + missed, 200, 100);
-        }
-    }
-}
-
 
     class CalculatorWindow extends JDialog {
         public CalculatorWindow() {
@@ -0,0 +1,35 @@
+package ui;
+
+import java.util.*;
+
+// Maps names (usernames, course codes) to dense int ids 0..size()-1 and back.
+// Not thread-safe; the owner guards it together with the columns that hold the ids.
+public final class SymbolTable {
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final List<String> names = new ArrayList<>();
+
+    // Id of the name, assigning the next free id the first time it is seen
+    public int intern(String name) {
+        Integer id = ids.get(name);
+        if (id == null) {
+            id = names.size();
+            ids.put(name, id);
+            names.add(name);
+        }
+        return id;
+    }
+
+    // Id of the name, or -1 if it was never interned
+    public int find(String name) {
+        Integer id = ids.get(name);
+        return id == null ? -1 : id;
+    }
+
+    public String name(int id) {
+        return names.get(id);
+    }
+
+    public int size() {
+        return names.size();
+    }
+}
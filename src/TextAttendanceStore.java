@@ -0,0 +1,49 @@
+package ui;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+// attendance.txt through the attendance index, the history index and the group-commit writer
+public final class TextAttendanceStore implements AttendanceStore {
+    private static final TextAttendanceStore SHARED = new TextAttendanceStore();
+
+    private TextAttendanceStore() {
+    }
+
+    public static TextAttendanceStore shared() {
+        return SHARED;
+    }
+
+    @Override
+    public AttendanceIndex.Counts counts(String student, String course) throws IOException {
+        return AttendanceIndex.current().get(student, course);
+    }
+
+    @Override
+    public List<AttendanceRecord> courseHistory(String course, LocalDate from, LocalDate to) throws IOException {
+        return AttendanceHistory.shared().course(course, from, to);
+    }
+
+    @Override
+    public List<AttendanceRecord> studentHistory(String student, LocalDate from, LocalDate to) throws IOException {
+        return AttendanceHistory.shared().student(student, from, to);
+    }
+
+    @Override
+    public int append(List<AttendanceRecord> records) throws IOException {
+        int written;
+        try {
+            written = AttendanceWriter.shared().append(records).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while saving attendance", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) throw (IOException) e.getCause();
+            throw new IOException(e.getCause());
+        }
+        // Alerts for the new rows are raised by the process that owns maintenance (DataWatcher)
+        return written;
+    }
+}
@@ -0,0 +1,143 @@
+package ui;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+
+// Immutable view of data/timetable.txt ("DAY,HH:mm,subject,room"), parsed once per file version
+// and shared by every panel. Slots are kept per weekday, sorted by time.
+public final class Timetable {
+    private static final Path TIMETABLE_FILE = Paths.get("data/timetable.txt");
+    private static final Slot[] NO_SLOTS = new Slot[0];
+
+    private static Timetable shared;
+    private static String sharedStamp;
+
+    private final Slot[][] slotsByDay = new Slot[7][];
+    private final List<LocalTime> times;
+
+    public static final class Slot {
+        private final DayOfWeek day;
+        private final LocalTime time;
+        private final String subject;
+        private final String room;
+
+        Slot(DayOfWeek day, LocalTime time, String subject, String room) {
+            this.day = day;
+            this.time = time;
+            this.subject = subject;
+            this.room = room;
+        }
+
+        public DayOfWeek getDay() {
+            return day;
+        }
+
+        public LocalTime getTime() {
+            return time;
+        }
+
+        public String getSubject() {
+            return subject;
+        }
+
+        public String getRoom() {
+            return room;
+        }
+    }
+
+    private Timetable(Map<DayOfWeek, List<Slot>> slots) {
+        SortedSet<LocalTime> allTimes = new TreeSet<>();
+        for (DayOfWeek day : DayOfWeek.values()) {
+            List<Slot> daySlots = slots.getOrDefault(day, Collections.emptyList());
+            daySlots.sort(Comparator.comparing(Slot::getTime));
+            slotsByDay[day.ordinal()] = daySlots.toArray(NO_SLOTS);
+            for (Slot slot : daySlots) {
+                allTimes.add(slot.getTime());
+            }
+        }
+        times = Collections.unmodifiableList(new ArrayList<>(allTimes));
+    }
+
+    public static synchronized Timetable shared() {
+        String stamp = DataFiles.stamp(TIMETABLE_FILE);
+        if (shared == null || !stamp.equals(sharedStamp)) {
+            try {
+                shared = load(TIMETABLE_FILE);
+            } catch (IOException e) {
+                e.printStackTrace();
+                if (shared == null) shared = new Timetable(new EnumMap<>(DayOfWeek.class));
+            }
+            sharedStamp = stamp;
+        }
+        return shared;
+    }
+
+    public static Timetable load(Path file) throws IOException {
+        Map<DayOfWeek, List<Slot>> slots = new EnumMap<>(DayOfWeek.class);
+        if (Files.exists(file)) {
+            for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                String[] parts = line.split(",");
+                if (parts.length < 3) continue;
+                DayOfWeek day = parseDay(parts[0].trim());
+                if (day == null) continue;
+                LocalTime time;
+                try {
+                    time = LocalTime.parse(parts[1].trim());
+                } catch (DateTimeParseException e) {
+                    continue;
+                }
+                String room = parts.length >= 4 ? parts[3].trim() : "";
+                slots.computeIfAbsent(day, d -> new ArrayList<>()).add(new Slot(day, time, parts[2].trim(), room));
+            }
+        }
+        return new Timetable(slots);
+    }
+
+    // Slots of the day, sorted by time
+    public List<Slot> slots(DayOfWeek day) {
+        return Collections.unmodifiableList(Arrays.asList(slotsByDay[day.ordinal()]));
+    }
+
+    public Slot slotAt(DayOfWeek day, LocalTime time) {
+        for (Slot slot : slotsByDay[day.ordinal()]) {
+            if (slot.getTime().equals(time)) return slot;
+        }
+        return null;
+    }
+
+    // Every distinct start time in the timetable, sorted
+    public List<LocalTime> getTimes() {
+        return times;
+    }
+
+    // Monday to Friday, plus weekend days that have classes
+    public List<DayOfWeek> getDays() {
+        List<DayOfWeek> days = new ArrayList<>();
+        for (DayOfWeek day : DayOfWeek.values()) {
+            if (day.ordinal() < 5 || slotsByDay[day.ordinal()].length > 0) days.add(day);
+        }
+        return days;
+    }
+
+    static DayOfWeek parseDay(String day) {
+        switch (day.toUpperCase()) {
+            case "MON": return DayOfWeek.MONDAY;
+            case "TUE": return DayOfWeek.TUESDAY;
+            case "WED": return DayOfWeek.WEDNESDAY;
+            case "THU": return DayOfWeek.THURSDAY;
+            case "FRI": return DayOfWeek.FRIDAY;
+            case "SAT": return DayOfWeek.SATURDAY;
+            case "SUN": return DayOfWeek.SUNDAY;
+            default: return null;
+        }
+    }
+
+    static String shortName(DayOfWeek day) {
+        return day.name().substring(0, 3);
+    }
+}
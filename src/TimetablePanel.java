@@ -1,67 +1,27 @@
 package ui;
 
 import java.awt.*;
-import java.io.*;
+import java.time.DayOfWeek;
+import java.time.LocalTime;
 import java.util.*;
+import java.util.List;
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
 
 public class TimetablePanel extends JPanel {
 
     private JTable timetableTable;
+    private final BackgroundLoader loader = new BackgroundLoader();
+    private final DefaultTableModel model = new DefaultTableModel();
+    private DataWatcher.Subscription subscription;
 
     public TimetablePanel() {
         setLayout(new BorderLayout());
 
-        String[] times = {"09:00", "10:00", "11:00", "12:00"};
-        String[] days = {"MON", "TUE", "WED", "THU", "FRI"};
-
-        // Prepare table model with days as rows, times as columns
-        DefaultTableModel model = new DefaultTableModel();
+        // Placeholder until the shared timetable has been loaded off the EDT
         model.addColumn("Day");
-        for (String time : times) {
-            model.addColumn(time);
-        }
-
-        // Initialize empty timetable
-        Map<String, Map<String, String>> timetableData = new HashMap<>();
-        for (String day : days) {
-            timetableData.put(day, new HashMap<>());
-            for (String time : times) {
-                timetableData.get(day).put(time, "FREE");
-            }
-        }
-
-        // Read timetable.txt
-        try (BufferedReader br = new BufferedReader(new FileReader("data/timetable.txt"))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                String[] parts = line.split(",");
-                if (parts.length >= 4) {
-                    String day = parts[0].trim();
-                    String time = parts[1].trim();
-                    String subject = parts[2].trim();
-                    String room = parts[3].trim();
-
-                    if (timetableData.containsKey(day) && timetableData.get(day).containsKey(time)) {
-                        timetableData.get(day).put(time, subject + " (" + room + ")");
-                    }
-                }
-            }
-        } catch (IOException e) {
-            e.printStackTrace();
-            JOptionPane.showMessageDialog(this, "Error reading timetable.txt", "Error", JOptionPane.ERROR_MESSAGE);
-        }
-
-        // Fill table rows
-        for (String day : days) {
-            Vector<String> row = new Vector<>();
-            row.add(day);
-            for (String time : times) {
-                row.add(timetableData.get(day).get(time));
-            }
-            model.addRow(row);
-        }
+        model.addRow(new Object[]{"Loading..."});
+        reload();
 
         timetableTable = new JTable(model);
         JScrollPane scrollPane = new JScrollPane(timetableTable);
@@ -73,4 +33,48 @@ public class TimetablePanel extends JPanel {
 
         add(scrollPane, BorderLayout.CENTER);
     }
+
+    private void reload() {
+        loader.load("Schedule", "timetable", Timetable::shared, timetable -> fillModel(model, timetable), ex -> {
+            ex.printStackTrace();
+            JOptionPane.showMessageDialog(this, "Error reading timetable.txt", "Error", JOptionPane.ERROR_MESSAGE);
+        });
+    }
+
+    // Follow timetable.txt changes only while the panel is on screen
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        subscription = DataWatcher.shared().subscribe(this::reload, "timetable.txt");
+    }
+
+    @Override
+    public void removeNotify() {
+        if (subscription != null) subscription.cancel();
+        loader.cancelAll();
+        super.removeNotify();
+    }
+
+    // Days as rows, times as columns, both taken from the timetable itself
+    private static void fillModel(DefaultTableModel model, Timetable timetable) {
+        List<LocalTime> times = timetable.getTimes();
+
+        Vector<String> columns = new Vector<>();
+        columns.add("Day");
+        for (LocalTime time : times) {
+            columns.add(time.toString());
+        }
+
+        Vector<Vector<Object>> rows = new Vector<>();
+        for (DayOfWeek day : timetable.getDays()) {
+            Vector<Object> row = new Vector<>();
+            row.add(Timetable.shortName(day));
+            for (LocalTime time : times) {
+                Timetable.Slot slot = timetable.slotAt(day, time);
+                row.add(slot == null ? "FREE" : slot.getSubject() + " (" + slot.getRoom() + ")");
+            }
+            rows.add(row);
+        }
+        model.setDataVector(rows, columns);
+    }
 }
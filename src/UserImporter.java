@@ -0,0 +1,187 @@
+package ui;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+// Validates new student and professor accounts against the existing registries, read once into
+// hash sets, and appends the accepted rows to the three files with FileTransaction.appendTo.
+// Used for single accounts from AdminDashboard and for CSV imports ("role,username,password,courses").
+public final class UserImporter {
+    private static final Set<String> VALID_COURSES = new HashSet<>(Arrays.asList("A", "B", "C", "D", "E", "F"));
+
+    private final File userFile;
+    private final File studentFile;
+    private final File professorFile;
+
+    private final Set<String> students = new HashSet<>();
+    private final Set<String> professors = new HashSet<>();
+    // lower-case username + "," + sorted course codes
+    private final Set<String> studentCourseSets = new HashSet<>();
+    private final Set<String> assignedCourses = new HashSet<>();
+
+    private final List<String[]> accepted = new ArrayList<>();
+
+    public static final class Result {
+        private final int imported;
+        private final List<String> errors;
+
+        Result(int imported, List<String> errors) {
+            this.imported = imported;
+            this.errors = errors;
+        }
+
+        public int getImported() {
+            return imported;
+        }
+
+        public List<String> getErrors() {
+            return errors;
+        }
+    }
+
+    public UserImporter(File userFile, File studentFile, File professorFile) throws IOException {
+        this.userFile = userFile;
+        this.studentFile = studentFile;
+        this.professorFile = professorFile;
+
+        for (String line : DataFiles.readLines(studentFile.toPath())) {
+            String[] parts = line.split(",");
+            if (parts[0].trim().isEmpty()) continue;
+            students.add(parts[0].trim().toLowerCase());
+            if (parts.length >= 3) {
+                studentCourseSets.add(courseSetKey(parts[0], parts[2]));
+            }
+        }
+        for (String line : DataFiles.readLines(professorFile.toPath())) {
+            String[] parts = line.split(",");
+            if (parts[0].trim().isEmpty()) continue;
+            professors.add(parts[0].trim().toLowerCase());
+            if (parts.length >= 3) {
+                assignedCourses.add(parts[2].trim().toUpperCase());
+            }
+        }
+    }
+
+    // Checks one account against the registries and the rows accepted so far; returns an error
+    // message, or null after queueing the account for write()
+    public String add(String role, String username, String password, String courseInput) {
+        username = username.trim();
+        password = password.trim();
+        courseInput = courseInput.trim();
+
+        if (!role.equals("Student") && !role.equals("Professor")) {
+            return "Unknown role '" + role + "'.";
+        }
+        if (username.isEmpty() || password.isEmpty() || courseInput.isEmpty()) {
+            return "Please fill all fields.";
+        }
+        if (username.contains(",") || password.contains(",")) {
+            return "Username and password cannot contain commas.";
+        }
+
+        List<String> courses = new ArrayList<>();
+        for (String code : courseInput.split(";")) {
+            code = code.trim().toUpperCase();
+            if (!VALID_COURSES.contains(code)) {
+                return "Please enter valid course codes (A-F).";
+            }
+            courses.add(code);
+        }
+        String courseList = String.join(";", courses);
+
+        Set<String> existing = role.equals("Student") ? students : professors;
+        if (existing.contains(username.toLowerCase())) {
+            return "Username already exists in the " + role + " records.";
+        }
+        if (studentCourseSets.contains(courseSetKey(username, courseList))) {
+            return "A user with the same username and course codes already exists.";
+        }
+        if (role.equals("Professor")) {
+            if (courses.size() != 1) {
+                return "Professors can only be assigned to ONE course.";
+            }
+            if (assignedCourses.contains(courses.get(0))) {
+                return "Course code '" + courses.get(0) + "' is already assigned to a professor.";
+            }
+        }
+
+        existing.add(username.toLowerCase());
+        if (role.equals("Student")) {
+            studentCourseSets.add(courseSetKey(username, courseList));
+        } else {
+            assignedCourses.add(courses.get(0));
+        }
+        accepted.add(new String[]{role, username, password, courseList});
+        return null;
+    }
+
+    // Validates every row of a CSV file; errors are collected per line rather than stopping the import
+    public List<String> addCsv(Path csv) throws IOException {
+        List<String> errors = new ArrayList<>();
+        List<String> lines = Files.readAllLines(csv, StandardCharsets.UTF_8);
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i).trim();
+            if (line.isEmpty()) continue;
+            if (i == 0 && line.toLowerCase().startsWith("role,")) continue; // header
+
+            String[] parts = line.split(",", -1);
+            if (parts.length != 4) {
+                errors.add("Line " + (i + 1) + ": expected role,username,password,courses");
+                continue;
+            }
+            String role = parts[0].trim();
+            role = role.isEmpty() ? role : role.substring(0, 1).toUpperCase() + role.substring(1).toLowerCase();
+            String error = add(role, parts[1], parts[2], parts[3]);
+            if (error != null) {
+                errors.add("Line " + (i + 1) + " (" + parts[1].trim() + "): " + error);
+            }
+        }
+        return errors;
+    }
+
+    // Appends every accepted account to students.txt, professors.txt and users.txt in one journaled
+    // FileTransaction, so a crash leaves each account in all of its files or in none. The files are read at
+    // commit, under the transaction lock appends also take, so accounts other processes add meanwhile are kept.
+    // The journal goes next to the first file, in data/, which FileTransaction.recoverAll() recovers before
+    // users.txt's directory. Passwords are hashed here, in parallel, as PBKDF2 takes a noticeable time per
+    // account.
+    public int write() throws IOException {
+        String[] hashes = accepted.parallelStream().map(row -> CredentialRegistry.hashPassword(row[2]))
+                .toArray(String[]::new);
+        List<String> users = new ArrayList<>();
+        List<String> studentRows = new ArrayList<>();
+        List<String> professorRows = new ArrayList<>();
+        for (int i = 0; i < accepted.size(); i++) {
+            String[] row = accepted.get(i);
+            users.add(row[0] + "," + row[1] + "," + hashes[i]);
+            List<String> target = row[0].equals("Student") ? studentRows : professorRows;
+            target.add(row[1] + "," + hashes[i] + "," + row[3]);
+        }
+
+        new FileTransaction()
+                .append(studentFile.toPath(), studentRows)
+                .append(professorFile.toPath(), professorRows)
+                .append(userFile.toPath(), users)
+                .commit();
+        int written = accepted.size();
+        accepted.clear();
+        return written;
+    }
+
+    public static Result importCsv(Path csv, File userFile, File studentFile, File professorFile) throws IOException {
+        UserImporter importer = new UserImporter(userFile, studentFile, professorFile);
+        List<String> errors = importer.addCsv(csv);
+        return new Result(importer.write(), errors);
+    }
+
+    private static String courseSetKey(String username, String courseInput) {
+        String[] courses = courseInput.split(";");
+        for (int i = 0; i < courses.length; i++) {
+            courses[i] = courses[i].trim().toUpperCase();
+        }
+        Arrays.sort(courses);
+        return username.trim().toLowerCase() + "," + String.join(";", courses);
+    }
+}